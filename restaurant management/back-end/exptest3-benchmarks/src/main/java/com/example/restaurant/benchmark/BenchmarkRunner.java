@@ -0,0 +1,55 @@
+package com.example.restaurant.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 基准测试入口
+ * 参数与 JMH 命令行相同 (如 "Json -f 1 -wi 1")；未指定 -rff 时结果写入 results/jmh-{时间}-{提交}.json
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getResult().hasValue()) {
+            builder.resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON));
+        } else {
+            Path dir = Paths.get("results");
+            Files.createDirectories(dir);
+            String name = "jmh-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                    + "-" + gitRevision() + ".json";
+            builder.resultFormat(ResultFormatType.JSON).result(dir.resolve(name).toString());
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+
+    // 当前提交的短哈希，取不到时为 local
+    private static String gitRevision() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (InputStream in = process.getInputStream()) {
+                String revision = new String(in.readAllBytes()).trim();
+                return process.waitFor() == 0 && !revision.isEmpty() ? revision : "local";
+            }
+        } catch (IOException e) {
+            return "local";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "local";
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.restaurant.benchmark;
+
+import com.example.restaurant.benchmark.support.EmbeddedEnvironment;
+import com.example.restaurant.benchmark.support.Fixtures;
+import com.example.restaurant.benchmark.support.StatementCounter;
+import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.entity.OrderItem;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.mapper.OrderItemMapper;
+import com.example.restaurant.mapper.OrdersMapper;
+import com.example.restaurant.service.OrderService;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单写入路径
+ * createOrder：完整的 OrderServiceImpl.createOrder，组装订单 + 事务内多行 INSERT + 提交后更新 Redis 索引和推送事件；
+ *   Redis 替身 (jedis-mock) 单次往返在百微秒级，远慢于真实 Redis，该项只用于不同提交之间对比
+ * insertBatch：只测事务内的多行 INSERT (OrdersMapper / OrderItemMapper.insertBatch)，不经过 Redis
+ * insertPerItem：对照组，同一事务内订单一条 INSERT、明细逐行 INSERT (改成多行 INSERT 之前的写法)
+ * 每轮测量结束时打印平均每次操作执行的 SQL 语句数 (StatementCounter 统计)：多行 INSERT 为 2 条，逐行为 1 + 菜品行数；
+ *   计数包含应用后台定时任务的查询，会比理论值略高
+ * 数据库为 H2 内存库，反映的是应用侧开销 (SQL 构造、MyBatis 映射、事务)，不含 MySQL 落盘
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateOrderBenchmark {
+
+    // 菜品行数：普通一桌 / 大桌 (多行 INSERT 的收益随行数增加)
+    @Param({"3", "15"})
+    public int items;
+
+    private EmbeddedEnvironment environment;
+    private OrderService orderService;
+    private OrdersMapper ordersMapper;
+    private OrderItemMapper orderItemMapper;
+    private TransactionTemplate transactionTemplate;
+    private OrderDTO request;
+    private StatementCounter statementCounter;
+    private long statementsBefore;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        environment = EmbeddedEnvironment.start(Collections.emptyMap());
+        orderService = environment.bean(OrderService.class);
+        ordersMapper = environment.bean(OrdersMapper.class);
+        orderItemMapper = environment.bean(OrderItemMapper.class);
+        transactionTemplate = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        request = Fixtures.orderRequest(0, items);
+        statementCounter = StatementCounter.install(environment.bean(SqlSessionFactory.class));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        statementsBefore = statementCounter.count();
+        operations = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        if (operations > 0) {
+            System.out.printf("  SQL 语句数/次: %.2f%n", (double) (statementCounter.count() - statementsBefore) / operations);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        environment.close();
+    }
+
+    @Benchmark
+    public Orders createOrder() {
+        operations++;
+        return orderService.createOrder(request);
+    }
+
+    @Benchmark
+    public Orders insertBatch() {
+        operations++;
+        Orders order = orderService.buildOrder(request);
+        transactionTemplate.executeWithoutResult(status -> {
+            ordersMapper.insertBatch(Collections.singletonList(order));
+            orderItemMapper.insertBatch(order.getOrderItems());
+        });
+        return order;
+    }
+
+    @Benchmark
+    public Orders insertPerItem() {
+        operations++;
+        Orders order = orderService.buildOrder(request);
+        transactionTemplate.executeWithoutResult(status -> {
+            ordersMapper.insert(order);
+            for (OrderItem item : order.getOrderItems()) {
+                orderItemMapper.insert(item);
+            }
+        });
+        return order;
+    }
+}
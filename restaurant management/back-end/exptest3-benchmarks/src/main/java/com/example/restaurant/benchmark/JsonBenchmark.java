@@ -0,0 +1,86 @@
+package com.example.restaurant.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.restaurant.benchmark.support.Fixtures;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fastjson2 解析 / 序列化缓存中的列表数据
+ * product:list 整体存一个 JSON 数组；订单按条存在 order:entry 哈希里，列表页逐条解析
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    // 菜单规模：小店 / 大型菜单
+    @Param({"20", "200"})
+    public int products;
+
+    // 订单列表一页 / 一晚
+    @Param({"50", "500"})
+    public int orders;
+
+    private List<Product> productList;
+    private String productJson;
+    private List<Orders> orderList;
+    private List<String> orderEntries;
+
+    @Setup
+    public void setup() {
+        productList = Fixtures.products(products);
+        productJson = JSON.toJSONString(productList);
+        orderList = Fixtures.orders(orders, 4);
+        orderEntries = new ArrayList<>(orders);
+        for (Orders order : orderList) {
+            orderEntries.add(JSON.toJSONString(order));
+        }
+    }
+
+    @Benchmark
+    public String productListSerialize() {
+        return JSON.toJSONString(productList);
+    }
+
+    @Benchmark
+    public List<Product> productListParse() {
+        return JSON.parseArray(productJson, Product.class);
+    }
+
+    @Benchmark
+    public List<String> orderEntriesSerialize() {
+        List<String> result = new ArrayList<>(orderList.size());
+        for (Orders order : orderList) {
+            result.add(JSON.toJSONString(order));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Orders> orderEntriesParse() {
+        List<Orders> result = new ArrayList<>(orderEntries.size());
+        for (String json : orderEntries) {
+            result.add(JSON.parseObject(json, Orders.class));
+        }
+        return result;
+    }
+}
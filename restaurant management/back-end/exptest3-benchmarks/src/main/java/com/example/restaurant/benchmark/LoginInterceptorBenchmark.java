@@ -0,0 +1,97 @@
+package com.example.restaurant.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.restaurant.benchmark.support.EmbeddedEnvironment;
+import com.example.restaurant.entity.User;
+import com.example.restaurant.interceptor.LoginInterceptor;
+import com.example.restaurant.utils.JwtUtils;
+import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.TokenCache;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录拦截器 preHandle
+ * hit：令牌已在本地缓存 (常规请求)；miss：本地缓存容量为 1，轮换 1024 个令牌，每次都走 Redis GET + JWT 验签
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginInterceptorBenchmark {
+
+    private static final int TOKENS = 1024;
+
+    @Param({"hit", "miss"})
+    public String cache;
+
+    private EmbeddedEnvironment environment;
+    private LoginInterceptor interceptor;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Map<String, Object> overrides = new HashMap<>();
+        if ("miss".equals(cache)) {
+            overrides.put("restaurant.auth.token-cache-size", 1);
+        }
+        environment = EmbeddedEnvironment.start(overrides);
+        interceptor = environment.bean(LoginInterceptor.class);
+        RedisUtils redisUtils = environment.bean(RedisUtils.class);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("admin");
+        user.setNickname("管理员");
+        user.setRole("admin");
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            Map<String, Object> claims = new HashMap<>();
+            claims.put("id", user.getId());
+            claims.put("username", user.getUsername());
+            claims.put("n", i);
+            tokens[i] = JwtUtils.generateToken(claims);
+            redisUtils.set(TokenCache.TOKEN_KEY_PREFIX + tokens[i], JSON.toJSONString(user), 86400);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        environment.close();
+    }
+
+    @Benchmark
+    public boolean preHandle() throws Exception {
+        String token = "hit".equals(cache) ? tokens[0] : tokens[next++ & (TOKENS - 1)];
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader("token", token);
+        return interceptor.preHandle(request, new MockHttpServletResponse(), null);
+    }
+
+    // 单独的 JWT 验签开销，对照 miss 路径中 Redis 往返占的比例
+    @Benchmark
+    public Claims jwtParse() {
+        return JwtUtils.parseToken(tokens[next++ & (TOKENS - 1)]);
+    }
+}
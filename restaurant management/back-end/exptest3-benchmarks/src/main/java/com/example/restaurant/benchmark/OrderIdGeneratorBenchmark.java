@@ -0,0 +1,162 @@
+package com.example.restaurant.benchmark;
+
+import com.example.restaurant.benchmark.support.SchemaScript;
+import com.example.restaurant.utils.OrderIdGenerator;
+import com.example.restaurant.utils.SnowflakeOrderIdGenerator;
+import com.example.restaurant.utils.UuidOrderIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 订单号生成：雪花算法 (默认) 与 UUID 对照，单线程和 8 线程争用 CAS 两种情况
+ * insertOrders：用两种订单号各向空的 orders 表 (H2 文件库，表结构同线上) 写入 rows 行，
+ *   测写入耗时，并在每轮结束时打印表和主键索引占用 (DISK_SPACE_USED)、存储写出的页数 / 字节数和仍有效的页数；
+ *   随机主键插在 B+ 树中间，页分裂后旧页作废重写，写出量明显高于按时间递增的主键
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIdGeneratorBenchmark {
+
+    private OrderIdGenerator snowflake;
+    private OrderIdGenerator uuid;
+
+    @Setup
+    public void setup() {
+        snowflake = new SnowflakeOrderIdGenerator(1, "bench");
+        uuid = new UuidOrderIdGenerator();
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    public String uuid() {
+        return uuid.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflakeContended() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidContended() {
+        return uuid.nextId();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void insertOrders(IndexState state) throws SQLException {
+        state.insert();
+    }
+
+    /**
+     * 每轮一个新的 H2 文件库，结束时打印存储统计并删除
+     */
+    @State(Scope.Benchmark)
+    public static class IndexState {
+
+        @Param({"snowflake", "uuid"})
+        public String generator;
+
+        @Param({"200000"})
+        public int rows;
+
+        private OrderIdGenerator ids;
+        private Path dir;
+        private Connection connection;
+
+        @Setup(Level.Iteration)
+        public void open() throws Exception {
+            ids = "uuid".equals(generator) ? new UuidOrderIdGenerator() : new SnowflakeOrderIdGenerator(1, "bench");
+            dir = Files.createTempDirectory("order-id-index");
+            String url = "jdbc:h2:file:" + dir.resolve("restaurant")
+                    + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+            SchemaScript.apply(url, "sa", "");
+            connection = DriverManager.getConnection(url, "sa", "");
+            connection.setAutoCommit(false);
+        }
+
+        // 每 1000 行一次批量写入并提交，与下单高峰的积压写入相当
+        void insert() throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO orders (id, table_id, total_amount, status) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    statement.setString(1, ids.nextId());
+                    statement.setString(2, "A" + (i % 30 + 1));
+                    statement.setBigDecimal(3, BigDecimal.valueOf(128));
+                    statement.setString(4, "pending");
+                    statement.addBatch();
+                    if (i % 1000 == 999 || i == rows - 1) {
+                        statement.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws SQLException, IOException {
+            Map<String, String> info = new LinkedHashMap<>();
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet rs = statement.executeQuery("SELECT DISK_SPACE_USED('orders')")) {
+                    rs.next();
+                    info.put("orders 占用(KB)", String.valueOf(rs.getLong(1) / 1024));
+                }
+                try (ResultSet rs = statement.executeQuery("SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+                        + "WHERE SETTING_NAME IN ('info.PAGE_COUNT', 'info.PAGE_COUNT_LIVE', 'info.FILE_WRITE_BYTES')")) {
+                    while (rs.next()) {
+                        info.put(rs.getString(1).substring("info.".length()), rs.getString(2));
+                    }
+                }
+            } finally {
+                connection.close();
+            }
+            System.out.println("  " + generator + " " + rows + " 行: " + info);
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
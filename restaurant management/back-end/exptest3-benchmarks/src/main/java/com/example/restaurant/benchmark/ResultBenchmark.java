@@ -0,0 +1,72 @@
+package com.example.restaurant.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.restaurant.benchmark.support.Fixtures;
+import com.example.restaurant.common.Result;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result 信封序列化
+ * 接口返回值由 Spring MVC 的 Jackson 写出 (ResponseBodyCache 未命中时也走这里)，fastjson2 作为对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultBenchmark {
+
+    @Param({"20", "200"})
+    public int size;
+
+    // 与 Spring Boot 自动配置的 ObjectMapper 相同的构建方式 (注册 JavaTimeModule 等)
+    private ObjectMapper objectMapper;
+    private Result<List<Product>> productResult;
+    private Result<List<Orders>> orderResult;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productResult = Result.success(Fixtures.products(size));
+        orderResult = Result.success(Fixtures.orders(size, 4));
+    }
+
+    @Benchmark
+    public byte[] emptyJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(Result.success());
+    }
+
+    @Benchmark
+    public byte[] productsJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productResult);
+    }
+
+    @Benchmark
+    public byte[] ordersJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderResult);
+    }
+
+    @Benchmark
+    public byte[] productsFastjson() {
+        return JSON.toJSONBytes(productResult);
+    }
+}
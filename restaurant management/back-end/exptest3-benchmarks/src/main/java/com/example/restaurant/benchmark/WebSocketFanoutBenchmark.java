@@ -0,0 +1,100 @@
+package com.example.restaurant.benchmark;
+
+import com.example.restaurant.server.WebSocketServer;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocketServer.sendInfo 向 N 个连接群发，测到最后一个连接的发送回调完成为止
+ * 会话为内存替身：异步发送立即回调成功，测的是入队、调度和回调链路本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketFanoutBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int sessions;
+
+    // 一条典型的订单事件
+    private static final String MESSAGE = "{\"type\":\"ORDER_CREATED\",\"origin\":\"node-1-bench\",\"seqs\":{\"orders\":1},"
+            + "\"timestamp\":1700000000000,\"data\":{\"id\":\"0000001234567890123\",\"tableId\":\"A01\","
+            + "\"status\":\"pending\",\"totalAmount\":128.00}}";
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<WebSocketServer> endpoints = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < sessions; i++) {
+            WebSocketServer endpoint = new WebSocketServer();
+            endpoint.onOpen(mockSession(String.valueOf(i)));
+            endpoints.add(endpoint);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (WebSocketServer endpoint : endpoints) {
+            endpoint.onClose();
+        }
+        endpoints.clear();
+    }
+
+    @Benchmark
+    public long sendInfo() {
+        long target = delivered.get() + sessions;
+        WebSocketServer.sendInfo(MESSAGE);
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+
+    // 只实现端点用到的方法：异步发送、发送超时和连接参数
+    private Session mockSession(String id) {
+        RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                    if ("sendText".equals(method.getName()) && args.length == 2 && args[1] instanceof SendHandler handler) {
+                        delivered.incrementAndGet();
+                        handler.onResult(new SendResult());
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAsyncRemote" -> async;
+                    case "getRequestParameterMap" -> Collections.emptyMap();
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.restaurant.benchmark.support;
+
+import com.example.restaurant.Exptest3Application;
+import com.github.fppt.jedismock.RedisServer;
+import com.github.fppt.jedismock.datastructures.Slice;
+import com.github.fppt.jedismock.operations.server.MockExecutor;
+import com.github.fppt.jedismock.server.ServiceOptions;
+import com.github.fppt.jedismock.storage.OperationExecutorState;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 自包含的运行环境：H2 (MySQL 兼容模式) + 进程内 Redis 协议服务 (jedis-mock) + 完整的 Spring 应用
+ * 不依赖本机的 MySQL / Redis；每个实例有自己的数据库和 Redis，
+ * 但 WebSocketServer 的连接、主题订阅和节点标识 (origin) 等静态状态由同一进程内的所有实例共用，
+ * 需要隔离 (如对比平台线程和虚拟线程) 时每个实例单独起一个 JVM
+ */
+public class EmbeddedEnvironment implements AutoCloseable {
+
+    private final RedisServer redisServer;
+    private final ConfigurableApplicationContext context;
+    private final Path workDir;
+
+    private EmbeddedEnvironment(RedisServer redisServer, ConfigurableApplicationContext context, Path workDir) {
+        this.redisServer = redisServer;
+        this.context = context;
+        this.workDir = workDir;
+    }
+
+    /**
+     * 启动环境
+     * @param overrides 额外的配置项 (覆盖 application.yml)，如 server.port、spring.profiles.active
+     */
+    public static EmbeddedEnvironment start(Map<String, Object> overrides) throws Exception {
+        RedisServer redis = RedisServer.newRedisServer(0)
+                .setOptions(ServiceOptions.withInterceptor(EmbeddedEnvironment::interceptRedis));
+        redis.start();
+
+        try {
+            String jdbcUrl = "jdbc:h2:mem:restaurant_" + UUID.randomUUID().toString().substring(0, 8)
+                    + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+            SchemaScript.apply(jdbcUrl, "sa", "");
+
+            Path workDir = Files.createTempDirectory("restaurant-bench");
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            properties.put("spring.datasource.url", jdbcUrl);
+            properties.put("spring.datasource.username", "sa");
+            properties.put("spring.datasource.password", "");
+            properties.put("spring.data.redis.host", redis.getHost());
+            properties.put("spring.data.redis.port", redis.getBindPort());
+            properties.put("server.port", 0);
+            // 不开管理端口 (指标仍可通过 MeterRegistry 读取)
+            properties.put("management.server.port", -1);
+            properties.put("mybatis-plus.configuration.log-impl", "org.apache.ibatis.logging.nologging.NoLoggingImpl");
+            properties.put("restaurant.image.dir", workDir.resolve("images").toString());
+            properties.put("restaurant.order.intake.log-dir", workDir.resolve("intake").toString());
+            properties.putAll(overrides);
+
+            SpringApplication application = new SpringApplication(Exptest3Application.class);
+            application.setLogStartupInfo(false);
+            // 以命令行参数的形式传入，优先级高于 application.yml
+            String[] args = properties.entrySet().stream()
+                    .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                    .toArray(String[]::new);
+            ConfigurableApplicationContext context = application.run(args);
+            return new EmbeddedEnvironment(redis, context, workDir);
+        } catch (Exception e) {
+            // 启动失败时关掉 Redis 替身，否则它的监听线程会让 JVM 无法退出
+            redis.stop();
+            throw e;
+        }
+    }
+
+    /**
+     * jedis-mock 对一次订阅多个频道的 SUBSCRIBE / PSUBSCRIBE 只回一个扁平数组，
+     * 而 Redis 会为每个频道各回一条确认；Spring 的监听容器启动时一次订阅全部频道并逐条等待确认，这里按真实协议回复
+     */
+    private static Slice interceptRedis(OperationExecutorState state, String command, List<Slice> params) {
+        boolean pattern = "psubscribe".equalsIgnoreCase(command);
+        if (!pattern && !"subscribe".equalsIgnoreCase(command)) {
+            return MockExecutor.proceed(state, command, params);
+        }
+        StringBuilder reply = new StringBuilder();
+        String kind = pattern ? "psubscribe" : "subscribe";
+        for (Slice channel : params) {
+            if (pattern) {
+                state.base().subscribeByPattern(channel, state.owner());
+            } else {
+                state.base().addSubscriber(channel, state.owner());
+            }
+            int count = state.base().getSubscriptions(state.owner()).size()
+                    + state.base().getPSubscriptions(state.owner()).size();
+            String name = channel.toString();
+            reply.append("*3\r\n$").append(kind.length()).append("\r\n").append(kind).append("\r\n")
+                    .append('$').append(channel.length()).append("\r\n").append(name).append("\r\n")
+                    .append(':').append(count).append("\r\n");
+        }
+        return Slice.create(reply.toString());
+    }
+
+    public ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 应用实际监听的端口
+     */
+    public int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port", "0"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        redisServer.stop();
+        try (var paths = Files.walk(workDir)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
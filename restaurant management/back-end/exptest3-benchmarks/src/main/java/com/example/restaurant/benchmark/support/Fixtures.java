@@ -0,0 +1,107 @@
+package com.example.restaurant.benchmark.support;
+
+import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.entity.OrderItem;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试 / 压测用的样例数据
+ * 字段长度和取值范围参照线上菜单与订单 (菜名 4~8 个汉字、描述一句话、图片为内容寻址文件名)
+ */
+public class Fixtures {
+
+    private static final String[] CATEGORIES = {"热菜", "凉菜", "主食", "汤羹", "饮品", "甜品"};
+    private static final String[] DISHES = {"宫保鸡丁", "鱼香肉丝", "麻婆豆腐", "水煮牛肉", "回锅肉", "清蒸鲈鱼",
+            "酸辣土豆丝", "红烧排骨", "扬州炒饭", "西红柿蛋汤", "口水鸡", "糖醋里脊", "干煸四季豆", "酸菜鱼"};
+    private static final String[] STATUSES = {"pending", "cooking", "completed"};
+
+    private Fixtures() {
+    }
+
+    public static List<Product> products(int count) {
+        Random random = new Random(42);
+        List<Product> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setName(DISHES[i % DISHES.length] + (i >= DISHES.length ? "(" + i + ")" : ""));
+            product.setPrice(BigDecimal.valueOf(800 + random.nextInt(12000), 2));
+            product.setDescription("精选食材现点现做，" + DISHES[random.nextInt(DISHES.length)] + "风味，口感鲜香。");
+            product.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            String image = "/images/" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            product.setImageUrl(image + ".jpg");
+            product.setThumbUrl(image + "_thumb.jpg");
+            product.setMediumUrl(image + "_medium.jpg");
+            product.setIsRecommend(i % 5 == 0);
+            list.add(product);
+        }
+        return list;
+    }
+
+    public static List<Orders> orders(int count, int itemsPerOrder) {
+        Random random = new Random(7);
+        List<Product> menu = products(DISHES.length);
+        List<Orders> list = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Orders order = new Orders();
+            order.setId(String.format("%019d", 1_000_000_000_000L + i));
+            order.setTableId(tableId(i));
+            order.setStatus(STATUSES[i % STATUSES.length]);
+            order.setCreateTime(now.minusSeconds(count - i));
+            List<OrderItem> items = new ArrayList<>(itemsPerOrder);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0; j < itemsPerOrder; j++) {
+                Product product = menu.get(random.nextInt(menu.size()));
+                OrderItem item = new OrderItem();
+                item.setId((long) i * itemsPerOrder + j + 1);
+                item.setOrderId(order.getId());
+                item.setProductId(product.getId());
+                item.setProductName(product.getName());
+                item.setPrice(product.getPrice());
+                item.setQuantity(1 + random.nextInt(3));
+                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+                items.add(item);
+            }
+            order.setTotalAmount(total);
+            order.setOrderItems(items);
+            list.add(order);
+        }
+        return list;
+    }
+
+    /**
+     * 下单请求体
+     * @param tableIndex 桌号序号
+     * @param itemCount 菜品行数
+     */
+    public static OrderDTO orderRequest(int tableIndex, int itemCount) {
+        Orders sample = orders(1, itemCount).get(0);
+        OrderDTO dto = new OrderDTO();
+        dto.setTableId(tableId(tableIndex));
+        dto.setTotalAmount(sample.getTotalAmount());
+        List<OrderDTO.OrderItemDTO> items = new ArrayList<>(itemCount);
+        for (OrderItem item : sample.getOrderItems()) {
+            OrderDTO.OrderItemDTO dtoItem = new OrderDTO.OrderItemDTO();
+            dtoItem.setId(item.getProductId());
+            dtoItem.setName(item.getProductName());
+            dtoItem.setPrice(item.getPrice());
+            dtoItem.setQuantity(item.getQuantity());
+            items.add(dtoItem);
+        }
+        dto.setItems(items);
+        return dto;
+    }
+
+    // 桌号 A01 ~ A30
+    public static String tableId(int index) {
+        return String.format("A%02d", index % 30 + 1);
+    }
+}
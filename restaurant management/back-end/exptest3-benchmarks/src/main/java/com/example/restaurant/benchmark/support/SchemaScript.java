@@ -0,0 +1,91 @@
+package com.example.restaurant.benchmark.support;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 把 数据库/restaurant_db.sql (Navicat 导出的 MySQL 脚本) 转换为 H2 (MODE=MySQL) 可执行的语句
+ * 只去掉 H2 不认识的存储相关子句，表结构、默认值和索引保持与线上一致
+ */
+public class SchemaScript {
+
+    // 构建时从 数据库/ 目录复制到 classpath；可用 -Dbench.schema=文件路径 换成其他脚本
+    public static final String RESOURCE = "/restaurant_db.sql";
+
+    private static final Pattern BLOCK_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern LINE_COMMENT = Pattern.compile("(?m)^--.*$");
+    private static final Pattern CHARSET = Pattern.compile("\\s+CHARACTER SET \\w+|\\s+COLLATE \\w+");
+    private static final Pattern USING_BTREE = Pattern.compile("\\s+USING BTREE");
+    // 外键：H2 建表时要求被引用表已存在，而导出脚本按表名排序；压测只关心写入路径，外键去掉
+    private static final Pattern FOREIGN_KEY = Pattern.compile(",\\s*CONSTRAINT `\\w+` FOREIGN KEY[^\\n]*");
+    // 表选项：ENGINE / AUTO_INCREMENT / CHARACTER SET / COMMENT / ROW_FORMAT
+    private static final Pattern TABLE_OPTIONS = Pattern.compile("\\)\\s*ENGINE\\s*=.*$", Pattern.DOTALL);
+
+    private SchemaScript() {
+    }
+
+    /**
+     * 读取原始脚本
+     */
+    public static String read() throws IOException {
+        String path = System.getProperty("bench.schema");
+        if (path != null) {
+            return Files.readString(Paths.get(path), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = SchemaScript.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new FileNotFoundException("classpath 中没有 " + RESOURCE);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 转换脚本
+     * @param sql 原始 MySQL 脚本
+     * @return 可逐条执行的语句
+     */
+    public static List<String> convert(String sql) {
+        sql = BLOCK_COMMENT.matcher(sql).replaceAll("");
+        sql = LINE_COMMENT.matcher(sql).replaceAll("");
+
+        List<String> statements = new ArrayList<>();
+        for (String raw : sql.split(";\\s*(\\r?\\n|$)")) {
+            String statement = raw.trim();
+            if (statement.isEmpty() || statement.startsWith("SET ")) {
+                continue;
+            }
+            if (statement.startsWith("CREATE TABLE")) {
+                statement = FOREIGN_KEY.matcher(statement).replaceAll("");
+                statement = TABLE_OPTIONS.matcher(statement).replaceAll(")");
+            }
+            statement = CHARSET.matcher(statement).replaceAll("");
+            statement = USING_BTREE.matcher(statement).replaceAll("");
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    /**
+     * 在指定数据库上执行脚本
+     */
+    public static void apply(String jdbcUrl, String username, String password) throws IOException, SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            for (String sql : convert(read())) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
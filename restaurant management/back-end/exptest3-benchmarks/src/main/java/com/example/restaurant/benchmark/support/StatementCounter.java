@@ -0,0 +1,37 @@
+package com.example.restaurant.benchmark.support;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计经 MyBatis 发往数据库的 SQL 语句数 (每次 prepare 计一条，即一次数据库往返)
+ * 注册到已启动应用的 SqlSessionFactory 上，之后新建的语句都会经过它
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class StatementCounter implements Interceptor {
+
+    private final AtomicLong statements = new AtomicLong();
+
+    public static StatementCounter install(SqlSessionFactory sqlSessionFactory) {
+        StatementCounter counter = new StatementCounter();
+        sqlSessionFactory.getConfiguration().addInterceptor(counter);
+        return counter;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        statements.incrementAndGet();
+        return invocation.proceed();
+    }
+
+    public long count() {
+        return statements.get();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.restaurant.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.restaurant.benchmark.support.Fixtures;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 晚高峰请求组合
+ * 顾客刷菜单、下单；后厨轮询待处理订单并推进状态；前台查看预订、查空桌后登记预订；管理端校验登录态。
+ * 列表接口像浏览器一样带上次的 ETag 重新验证，304 视为成功。
+ */
+public class DinnerRushWorkload {
+
+    /**
+     * 请求类型及权重 (合计 100)
+     */
+    public enum Operation {
+        MENU_POLL("GET /api/products", 40),
+        ORDER_CREATE("POST /api/orders", 20),
+        KITCHEN_POLL("GET /api/orders?status=pending", 15),
+        ORDER_STATUS("PUT /api/orders/{id}/status", 10),
+        RESERVATION_CREATE("POST /api/reservations (+GET free)", 5),
+        RESERVATION_POLL("GET /api/reservations/admin", 5),
+        USER_INFO("GET /api/user/info", 5);
+
+        private final String endpoint;
+        private final int weight;
+
+        Operation(String endpoint, int weight) {
+            this.endpoint = endpoint;
+            this.weight = weight;
+        }
+
+        public String endpoint() {
+            return endpoint;
+        }
+    }
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String token;
+    private final List<String> orderBodies = new ArrayList<>();
+
+    // 已下单待开做 / 制作中的订单，后厨按顺序推进状态
+    private final ConcurrentLinkedQueue<String> pendingOrders = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> cookingOrders = new ConcurrentLinkedQueue<>();
+
+    public DinnerRushWorkload(HttpClient client, int port, String token) {
+        this.client = client;
+        this.baseUrl = "http://localhost:" + port;
+        this.token = token;
+        // 每桌 1~6 道菜
+        for (int i = 0; i < 60; i++) {
+            orderBodies.add(JSON.toJSONString(Fixtures.orderRequest(i, 1 + i % 6)));
+        }
+    }
+
+    /**
+     * 登录并返回令牌
+     */
+    public static String login(HttpClient client, int port, String username, String password)
+            throws IOException, InterruptedException {
+        String body = JSON.toJSONString(Map.of("username", username, "password", password));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        JSONObject result = JSON.parseObject(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        if (result.getIntValue("code") != 200) {
+            throw new IllegalStateException("登录失败: " + result.getString("msg"));
+        }
+        return result.getString("data");
+    }
+
+    /**
+     * 单个压测用户：按权重随机发请求，直到 endAt
+     * @param stats 本线程的耗时记录
+     * @param recordFrom 预热结束时间 (System.nanoTime)，之前的请求不计入
+     * @param endAt 结束时间 (System.nanoTime)
+     * @param thinkMillis 两次请求之间的停顿
+     */
+    public void runUser(long seed, LatencyStats stats, long recordFrom, long endAt, long thinkMillis)
+            throws InterruptedException {
+        Random random = new Random(seed);
+        UserState state = new UserState();
+        while (System.nanoTime() < endAt) {
+            Operation operation = pick(random);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = execute(operation, random, state);
+            } catch (IOException e) {
+                ok = false;
+            }
+            if (start >= recordFrom) {
+                stats.record(operation.endpoint(), System.nanoTime() - start, ok);
+            }
+            if (thinkMillis > 0) {
+                Thread.sleep(thinkMillis);
+            }
+        }
+    }
+
+    private Operation pick(Random random) {
+        int roll = random.nextInt(100);
+        for (Operation operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return Operation.MENU_POLL;
+    }
+
+    private boolean execute(Operation operation, Random random, UserState state)
+            throws IOException, InterruptedException {
+        switch (operation) {
+            case MENU_POLL:
+                // 一半是新入座的顾客 (没有缓存)，一半是刷新页面的顾客
+                state.menuEtag = revalidate("/api/products", random.nextBoolean() ? null : state.menuEtag);
+                return state.menuEtag != null;
+            case KITCHEN_POLL:
+                state.kitchenEtag = revalidate("/api/orders?status=pending", state.kitchenEtag);
+                return state.kitchenEtag != null;
+            case RESERVATION_POLL:
+                state.reservationEtag = revalidate("/api/reservations/admin", state.reservationEtag);
+                return state.reservationEtag != null;
+            case ORDER_CREATE: {
+                JSONObject result = send(post("/api/orders", orderBodies.get(random.nextInt(orderBodies.size()))));
+                if (result == null) {
+                    return false;
+                }
+                pendingOrders.add(result.getJSONObject("data").getString("orderId"));
+                return true;
+            }
+            case ORDER_STATUS: {
+                String id = pendingOrders.poll();
+                String status = "cooking";
+                if (id == null) {
+                    id = cookingOrders.poll();
+                    status = "completed";
+                }
+                if (id == null) {
+                    // 还没有可推进的订单，改为轮询
+                    return revalidate("/api/orders?status=pending", null) != null;
+                }
+                HttpRequest request = builder("/api/orders/" + id + "/status?status=" + status)
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build();
+                boolean ok = send(request) != null;
+                if (ok && "cooking".equals(status)) {
+                    cookingOrders.add(id);
+                }
+                return ok;
+            }
+            case RESERVATION_CREATE: {
+                // 先查空闲餐桌再订第一张；时段订满、或被别人抢先订走都是正常的业务结果
+                LocalDateTime slot = LocalDateTime.now().plusDays(1 + random.nextInt(7))
+                        .withHour(17 + random.nextInt(5)).withMinute(15 * random.nextInt(4)).withSecond(0).withNano(0);
+                int people = 2 + random.nextInt(6);
+                JSONObject free = send(builder("/api/reservations/availability?time=" + slot.format(ISO)
+                        + "&people=" + people).GET().build());
+                if (free == null) {
+                    return false;
+                }
+                if (free.getJSONArray("data").isEmpty()) {
+                    return true;
+                }
+                String body = JSON.toJSONString(Map.of(
+                        "name", "顾客" + random.nextInt(10000),
+                        "phone", "138" + String.format("%08d", random.nextInt(100_000_000)),
+                        "reserveTime", slot.format(ISO),
+                        "peopleCount", people,
+                        "tableId", free.getJSONArray("data").getJSONObject(0).getString("tableId")));
+                HttpResponse<String> response = client.send(post("/api/reservations", body),
+                        HttpResponse.BodyHandlers.ofString());
+                return response.statusCode() == 200;
+            }
+            case USER_INFO:
+                return send(builder("/api/user/info").header("token", token).GET().build()) != null;
+            default:
+                return false;
+        }
+    }
+
+    // GET 并带上次的 ETag；成功返回新 ETag (304 时沿用旧值)，失败返回 null
+    private String revalidate(String path, String etag) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = builder(path).GET();
+        if (etag != null && !etag.isEmpty()) {
+            builder.header("If-None-Match", etag);
+        }
+        HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 304) {
+            return etag;
+        }
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        return response.headers().firstValue("ETag").orElse("");
+    }
+
+    // 发送请求，HTTP 200 且 Result.code 为 200 时返回 Result，否则返回 null
+    private JSONObject send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        JSONObject result = JSON.parseObject(response.body());
+        return result != null && result.getIntValue("code") == 200 ? result : null;
+    }
+
+    private HttpRequest post(String path, String json) {
+        return builder(path).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+    }
+
+    // 每个用户各自缓存的 ETag
+    private static class UserState {
+        private String menuEtag;
+        private String kitchenEtag;
+        private String reservationEtag;
+    }
+}
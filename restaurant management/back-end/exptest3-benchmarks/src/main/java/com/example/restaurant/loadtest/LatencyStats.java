@@ -0,0 +1,99 @@
+package com.example.restaurant.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按接口记录请求耗时
+ * 每个压测线程各持有一个实例 (不加锁)，结束后合并到一起再计算分位数
+ */
+public class LatencyStats {
+
+    private final Map<String, Samples> byEndpoint = new LinkedHashMap<>();
+
+    /**
+     * 记录一次请求
+     * @param endpoint 接口名
+     * @param nanos 耗时(纳秒)
+     * @param ok 是否成功 (HTTP 2xx / 304)
+     */
+    public void record(String endpoint, long nanos, boolean ok) {
+        Samples samples = byEndpoint.computeIfAbsent(endpoint, k -> new Samples());
+        samples.add(nanos);
+        if (!ok) {
+            samples.errors++;
+        }
+    }
+
+    /**
+     * 把另一个线程的记录合并进来
+     */
+    public void merge(LatencyStats other) {
+        for (Map.Entry<String, Samples> entry : other.byEndpoint.entrySet()) {
+            Samples target = byEndpoint.computeIfAbsent(entry.getKey(), k -> new Samples());
+            Samples source = entry.getValue();
+            for (int i = 0; i < source.size; i++) {
+                target.add(source.values[i]);
+            }
+            target.errors += source.errors;
+        }
+    }
+
+    /**
+     * 计算各接口的吞吐量和分位数，最后一行为全部接口汇总
+     * @param seconds 统计时长(秒)
+     */
+    public List<Summary> summarize(double seconds) {
+        List<Summary> result = new ArrayList<>();
+        Samples total = new Samples();
+        for (Map.Entry<String, Samples> entry : byEndpoint.entrySet()) {
+            Samples samples = entry.getValue();
+            result.add(samples.summarize(entry.getKey(), seconds));
+            for (int i = 0; i < samples.size; i++) {
+                total.add(samples.values[i]);
+            }
+            total.errors += samples.errors;
+        }
+        result.add(total.summarize("TOTAL", seconds));
+        return result;
+    }
+
+    /**
+     * 单个接口的统计结果，耗时单位为毫秒
+     */
+    public record Summary(String endpoint, long count, long errors, double throughput,
+                          double p50, double p99, double p999, double max) {
+    }
+
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        Summary summarize(String endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return new Summary(endpoint, size, errors, size / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    size == 0 ? 0 : sorted[size - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
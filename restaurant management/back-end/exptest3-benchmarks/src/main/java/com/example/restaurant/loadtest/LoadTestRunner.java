@@ -0,0 +1,274 @@
+package com.example.restaurant.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONWriter;
+import com.example.restaurant.benchmark.support.EmbeddedEnvironment;
+import com.example.restaurant.benchmark.support.Fixtures;
+import com.example.restaurant.entity.Product;
+import com.example.restaurant.utils.ThreadFactories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测入口
+ * 在同一进程内启动完整应用 (H2 + Redis 替身，建表脚本取自 数据库/restaurant_db.sql)，按晚高峰请求组合施压，
+ * 输出各接口的吞吐量和 p50 / p99 / p999 延迟，可分别在平台线程和虚拟线程 (vthreads 配置) 下各跑一轮对比。
+ *
+ * 参数 (key=value)：
+ *   users=32      并发用户数 (闭环：每个用户收到响应后立即发下一个请求)
+ *   duration=60   计入统计的时长(秒)
+ *   warmup=15     预热时长(秒)，不计入统计
+ *   ws=50         WebSocket 订阅连接数
+ *   think=0       每个用户两次请求之间的停顿(毫秒)
+ *   mode=both     platform / virtual / both (virtual 需要 JDK 21+ 运行)
+ *
+ * mode=both 时每种模式各启动一个新的 JVM (沿用当前的 classpath 和 JVM 参数) 依次运行：
+ * WebSocketServer 的连接、主题和节点标识等是静态的，JIT 编译、堆大小和 GC 状态也会从上一轮带过来，同一进程里跑两轮没法公平对比。
+ * 应用自身的日志写入 target/loadtest-app.log，报告打印到控制台并以 JSON 写入 results/。
+ */
+public class LoadTestRunner {
+
+    // out 为内部参数：子进程把本轮结果以 JSON 写到该文件，由父进程汇总
+    private static final String[] DEFAULTS = {"users=32", "duration=60", "warmup=15", "ws=50", "think=0", "mode=both", "out="};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int users = Integer.parseInt(options.get("users"));
+        int durationSeconds = Integer.parseInt(options.get("duration"));
+        int warmupSeconds = Integer.parseInt(options.get("warmup"));
+        int wsConnections = Integer.parseInt(options.get("ws"));
+        long thinkMillis = Long.parseLong(options.get("think"));
+
+        List<String> modes = new ArrayList<>();
+        String mode = options.get("mode");
+        if (!"virtual".equals(mode)) {
+            modes.add("platform");
+        }
+        if (!"platform".equals(mode)) {
+            if (ThreadFactories.virtualThreadsAvailable()) {
+                modes.add("virtual");
+            } else {
+                System.out.println("当前 JDK " + Runtime.version().feature() + " 不支持虚拟线程，跳过 virtual 模式");
+            }
+        }
+
+        PrintStream console = System.out;
+        Path appLog = Paths.get("target", "loadtest-app.log");
+        Files.createDirectories(appLog.getParent());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("time", LocalDateTime.now().toString());
+        report.put("revision", gitRevision());
+        report.put("java", Runtime.version().toString());
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        report.put("options", options);
+        Map<String, List<LatencyStats.Summary>> results = new LinkedHashMap<>();
+
+        if (modes.size() > 1) {
+            for (String current : modes) {
+                results.put(current, fork(options, current));
+            }
+        } else if (!modes.isEmpty()) {
+            String current = modes.get(0);
+            try (PrintStream log = new PrintStream(new FileOutputStream(appLog.toFile(), true), true)) {
+                console.printf("%n==> %s 线程：%d 用户，预热 %ds，统计 %ds，%d 个 WebSocket 连接%n",
+                        current, users, warmupSeconds, durationSeconds, wsConnections);
+                System.setOut(log);
+                System.setErr(log);
+                try {
+                    results.put(current, runOnce("virtual".equals(current), users, durationSeconds, warmupSeconds,
+                            wsConnections, thinkMillis));
+                } finally {
+                    System.setOut(console);
+                    System.setErr(console);
+                }
+                print(console, results.get(current));
+            }
+            if (!options.get("out").isEmpty()) {
+                Files.writeString(Paths.get(options.get("out")), JSON.toJSONString(results.get(current)));
+                System.exit(0);
+            }
+        }
+
+        if (results.size() == 2) {
+            compare(console, results.get("platform"), results.get("virtual"));
+        }
+        report.put("results", results);
+
+        Path dir = Paths.get("results");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + "-" + report.get("revision") + ".json");
+        Files.writeString(file, JSON.toJSONString(report, JSONWriter.Feature.PrettyFormat));
+        console.println("\n报告已写入 " + file);
+        System.exit(0);
+    }
+
+    /**
+     * 在新的 JVM 里跑一种模式，输出直接转到当前控制台
+     */
+    private static List<LatencyStats.Summary> fork(Map<String, String> options, String mode)
+            throws IOException, InterruptedException {
+        Path out = Files.createTempFile("loadtest-" + mode, ".json");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(LoadTestRunner.class.getName());
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                String value = "mode".equals(option.getKey()) ? mode
+                        : "out".equals(option.getKey()) ? out.toString() : option.getValue();
+                command.add(option.getKey() + "=" + value);
+            }
+            int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (exit != 0) {
+                throw new IllegalStateException(mode + " 模式的压测进程异常退出: " + exit);
+            }
+            return JSON.parseArray(Files.readString(out), LatencyStats.Summary.class);
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    private static List<LatencyStats.Summary> runOnce(boolean virtual, int users, int durationSeconds,
+                                                      int warmupSeconds, int wsConnections, long thinkMillis)
+            throws Exception {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.profiles.active", virtual ? "loadtest,vthreads" : "loadtest");
+        try (EmbeddedEnvironment environment = EmbeddedEnvironment.start(overrides)) {
+            seed(environment.bean(DataSource.class));
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            int port = environment.port();
+            String token = DinnerRushWorkload.login(client, port, "admin", "123456");
+            DinnerRushWorkload workload = new DinnerRushWorkload(client, port, token);
+
+            long start = System.nanoTime();
+            long recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long endAt = recordFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+            long recordFromMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(warmupSeconds);
+
+            try (WebSocketSubscribers subscribers = new WebSocketSubscribers(client, port, wsConnections, recordFromMillis)) {
+                List<Thread> threads = new ArrayList<>();
+                List<LatencyStats> perUser = new ArrayList<>();
+                for (int i = 0; i < users; i++) {
+                    LatencyStats stats = new LatencyStats();
+                    perUser.add(stats);
+                    long seed = i;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            workload.runUser(seed, stats, recordFrom, endAt, thinkMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }, "loadtest-user-" + i);
+                    thread.start();
+                    threads.add(thread);
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                // 等最后一批推送到达
+                Thread.sleep(500);
+
+                LatencyStats merged = new LatencyStats();
+                for (LatencyStats stats : perUser) {
+                    merged.merge(stats);
+                }
+                // 推送延迟单独成行，不计入 TOTAL (TOTAL 只汇总 HTTP 请求)
+                List<LatencyStats.Summary> summaries = merged.summarize(durationSeconds);
+                List<LatencyStats.Summary> delivery = subscribers.stats().summarize(durationSeconds);
+                if (delivery.size() > 1) {
+                    summaries.add(summaries.size() - 1, delivery.get(0));
+                }
+                return summaries;
+            }
+        }
+    }
+
+    // 菜单和管理员账号 (导出脚本只有表结构)
+    private static void seed(DataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO sys_user (username, password, nickname, role) VALUES (?, ?, ?, ?)",
+                "admin", "123456", "管理员", "admin");
+        List<Object[]> rows = new ArrayList<>();
+        for (Product product : Fixtures.products(40)) {
+            rows.add(new Object[]{product.getName(), product.getPrice(), product.getDescription(),
+                    product.getImageUrl(), product.getCategory(), product.getIsRecommend()});
+        }
+        jdbc.batchUpdate("INSERT INTO products (name, price, description, image_url, category, is_recommended) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private static void print(PrintStream out, List<LatencyStats.Summary> summaries) {
+        out.printf("%-34s %9s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        for (LatencyStats.Summary s : summaries) {
+            out.printf("%-34s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    s.endpoint(), s.count(), s.errors(), s.throughput(), s.p50(), s.p99(), s.p999(), s.max());
+        }
+    }
+
+    private static void compare(PrintStream out, List<LatencyStats.Summary> platform, List<LatencyStats.Summary> virtual) {
+        LatencyStats.Summary p = platform.get(platform.size() - 1);
+        LatencyStats.Summary v = virtual.get(virtual.size() - 1);
+        out.printf("%n平台线程 vs 虚拟线程 (全部 HTTP 接口)：吞吐 %.1f -> %.1f req/s (%+.1f%%)，p99 %.2f -> %.2f ms，p999 %.2f -> %.2f ms%n",
+                p.throughput(), v.throughput(), (v.throughput() / p.throughput() - 1) * 100,
+                p.p99(), v.p99(), p.p999(), v.p999());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : DEFAULTS) {
+            options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index <= 0 || !options.containsKey(arg.substring(0, index))) {
+                throw new IllegalArgumentException("未知参数: " + arg + "，可用参数: " + options.keySet());
+            }
+            options.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+        return options;
+    }
+
+    // 当前提交的短哈希，取不到时为 local
+    private static String gitRevision() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (InputStream in = process.getInputStream()) {
+                String revision = new String(in.readAllBytes()).trim();
+                return process.waitFor() == 0 && !revision.isEmpty() ? revision : "local";
+            }
+        } catch (IOException e) {
+            return "local";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "local";
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.restaurant.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket 订阅端 (后厨大屏 / 各桌点餐页)
+ * 记录事件从服务端产生 (WsEvent.timestamp) 到客户端收到的延迟
+ */
+public class WebSocketSubscribers implements AutoCloseable {
+
+    public static final String ENDPOINT = "WS event delivery";
+
+    private final List<WebSocket> sockets = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * 建立连接
+     * @param count 连接数；第一个订阅全部订单，其余按桌订阅 (orders:table:Axx) 和菜单
+     */
+    public WebSocketSubscribers(HttpClient client, int port, int count, long recordFromMillis) {
+        for (int i = 0; i < count; i++) {
+            String query = i == 0 ? "topics=orders,reservations,menu" : "topics=menu&tableId=A" + String.format("%02d", i % 30 + 1);
+            Listener listener = new Listener(recordFromMillis);
+            WebSocket socket = client.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/ws/orders?" + query), listener)
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .join();
+            sockets.add(socket);
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * 合并所有连接的延迟记录
+     */
+    public LatencyStats stats() {
+        LatencyStats merged = new LatencyStats();
+        for (Listener listener : listeners) {
+            synchronized (listener) {
+                merged.merge(listener.stats);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        for (WebSocket socket : sockets) {
+            socket.abort();
+        }
+    }
+
+    // 同一连接的回调由 HttpClient 串行调用；合并时加锁只为保证可见性
+    private static class Listener implements WebSocket.Listener {
+        private final long recordFromMillis;
+        private final LatencyStats stats = new LatencyStats();
+        private final StringBuilder buffer = new StringBuilder();
+
+        Listener(long recordFromMillis) {
+            this.recordFromMillis = recordFromMillis;
+        }
+
+        @Override
+        public synchronized CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                long now = System.currentTimeMillis();
+                try {
+                    JSONObject event = JSON.parseObject(buffer.toString());
+                    Long timestamp = event == null ? null : event.getLong("timestamp");
+                    if (timestamp != null && timestamp >= recordFromMillis) {
+                        stats.record(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(now - timestamp), true);
+                    }
+                } catch (Exception e) {
+                    // 非事件消息 (旧格式的纯文本通知) 不计
+                }
+                buffer.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+}
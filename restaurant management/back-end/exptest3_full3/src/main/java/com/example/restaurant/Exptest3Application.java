@@ -1,7 +1,9 @@
 package com.example.restaurant;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
+@EnableScheduling
 public class Exptest3Application {
     public static void main(String[] args) {
         SpringApplication.run(Exptest3Application.class, args);
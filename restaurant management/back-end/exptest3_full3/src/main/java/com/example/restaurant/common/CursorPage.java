@@ -0,0 +1,27 @@
+package com.example.restaurant.common;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 用于 ?after=&size= 的键集分页模式，不执行 COUNT(*)，total 为缓存的近似总数
+ * @param <T> 记录类型
+ */
+@Data
+public class CursorPage<T> {
+    private List<T> records;   // 当前页数据
+    private Long size;         // 每页条数
+    private String nextCursor; // 下一页游标 (不透明字符串)，为 null 表示没有更多数据
+    private Long total;        // 近似总数 (来自缓存，可能为 null)
+
+    public static <T> CursorPage<T> of(List<T> records, long size, String nextCursor, Long total) {
+        CursorPage<T> page = new CursorPage<>();
+        page.records = records;
+        page.size = size;
+        page.nextCursor = nextCursor;
+        page.total = total;
+        return page;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.restaurant.config;
+
+import io.micrometer.core.instrument.binder.commonspool2.CommonsObjectPool2Metrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 运行指标配置类
+ * HikariCP、Lettuce 命令耗时、Tomcat 线程池、JVM 等指标由 Actuator 自动注册，这里补充 Actuator 不自动绑定的部分
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Lettuce 连接池 (commons-pool2) 饱和度：活跃 / 空闲连接数、等待借用的线程数、借用等待时间
+     * 连接池通过 JMX 注册，首次建立连接后出现 commons.pool2.* 指标
+     */
+    @Bean
+    public CommonsObjectPool2Metrics commonsObjectPool2Metrics() {
+        return new CommonsObjectPool2Metrics();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.restaurant.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Redis 发布/订阅配置类
+ * 各节点通过订阅频道接收缓存失效等广播消息
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // 单线程分发消息，保证同一频道的消息按发布顺序处理 (WebSocket 事件转发依赖这一点)；
+        // 所有频道共用这一个线程，监听器里不能查库或做其他阻塞操作 (搜索索引回源交给各服务自己的线程)
+        container.setTaskExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "redis-listener");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        return container;
+    }
+}
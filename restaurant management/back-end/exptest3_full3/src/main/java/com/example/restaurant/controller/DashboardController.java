@@ -0,0 +1,94 @@
+package com.example.restaurant.controller;
+
+import com.example.restaurant.common.Result;
+import com.example.restaurant.entity.SalesRollup;
+import com.example.restaurant.service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 经营看板控制器
+ * 数据来自内存中的销售汇总 (SalesRollupService)，不扫描订单表，需登录后访问
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    /**
+     * 概览：今日 / 昨日 / 近 7 天 / 累计的订单数、销量、销售额
+     */
+    @GetMapping
+    public Result<Map<String, Object>> overview() {
+        return Result.success(salesRollupService.overview());
+    }
+
+    /**
+     * 菜品排行
+     * @param sort quantity 按销量 (默认) / revenue 按销售额
+     */
+    @GetMapping("/products")
+    public Result<List<SalesRollup>> products(@RequestParam(defaultValue = "10") Integer limit,
+                                              @RequestParam(defaultValue = "quantity") String sort) {
+        return Result.success(salesRollupService.topProducts(Math.min(Math.max(limit, 1), 100), sort));
+    }
+
+    /**
+     * 分类汇总，按销售额倒序
+     */
+    @GetMapping("/categories")
+    public Result<List<SalesRollup>> categories() {
+        return Result.success(salesRollupService.categories());
+    }
+
+    /**
+     * 分时汇总 (24 小时)，默认今天
+     */
+    @GetMapping("/hourly")
+    public Result<List<SalesRollup>> hourly(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return Result.success(salesRollupService.hourly(date != null ? date : LocalDate.now()));
+    }
+
+    /**
+     * 按天汇总 (含首尾)，默认最近 30 天，最长 366 天
+     */
+    @GetMapping("/daily")
+    public Result<List<SalesRollup>> daily(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            return Result.success(salesRollupService.daily(start, end));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 从订单表全量重建汇总 (首次上线补历史 / 数据修复)
+     */
+    @PostMapping("/rebuild")
+    public Result<Map<String, Object>> rebuild() {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("scannedOrders", salesRollupService.rebuild());
+            return Result.success(data);
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.restaurant.controller;
+
+import com.example.restaurant.server.ImageServer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * 图片访问控制器
+ * 取代原来 WebMvcConfig 中 /images/** 的静态资源映射，由 ImageServer 负责缓存头、Range 和零拷贝发送
+ */
+@RestController
+public class ImageController {
+
+    @Autowired
+    private ImageServer imageServer;
+
+    @GetMapping("/images/{name:.+}")
+    public void image(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageServer.serve(name, request, response);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.restaurant.controller;
+
+import com.example.restaurant.common.Result;
+import com.example.restaurant.server.ImageServer;
+import com.example.restaurant.server.WebSocketServer;
+import com.example.restaurant.service.OrderIntakeService;
+import com.example.restaurant.utils.ResponseBodyCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 运行监控控制器
+ * 暴露内部运行指标，需登录后访问
+ */
+@RestController
+@RequestMapping("/api/monitor")
+public class MonitorController {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private ImageServer imageServer;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    /**
+     * WebSocket 推送统计：连接数、队列积压、丢弃次数、发送延迟
+     */
+    @GetMapping("/websocket")
+    public Result<Map<String, Object>> websocket() {
+        return Result.success(WebSocketServer.stats());
+    }
+
+    /**
+     * 订单受理队列统计：待落库数量、最老订单等待时长、批次大小、提交耗时
+     */
+    @GetMapping("/order-intake")
+    public Result<Map<String, Object>> orderIntake() {
+        return Result.success(orderIntakeService.stats());
+    }
+
+    /**
+     * 图片服务统计：输出字节数、热点缓存命中率、304 / 206 / sendfile 次数
+     */
+    @GetMapping("/images")
+    public Result<Map<String, Object>> images() {
+        return Result.success(imageServer.stats());
+    }
+
+    /**
+     * 列表响应体缓存统计：命中率、gzip 响应次数、条目数
+     */
+    @GetMapping("/response-cache")
+    public Result<Map<String, Object>> responseCache() {
+        return Result.success(responseBodyCache.stats());
+    }
+}
@@ -4,12 +4,20 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.restaurant.common.Result;
 import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.dto.OrderStatusUpdate;
 import com.example.restaurant.entity.Orders;
+import com.example.restaurant.service.OrderIntakeService;
 import com.example.restaurant.service.OrderService;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 订单控制器
@@ -22,25 +30,74 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    // 提交订单
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    /**
+     * 提交订单
+     * 同步模式直接落库 (persisted)；异步受理模式写入本地日志后立即返回 (accepted)，由后台批量落库
+     */
     @PostMapping("/orders")
     public Result<?> createOrder(@RequestBody OrderDTO orderDTO) {
-        orderService.createOrder(orderDTO);
-        return Result.success("下单成功");
+        try {
+            Map<String, Object> data = new HashMap<>();
+            if (orderIntakeService.isAsync()) {
+                Orders order = orderIntakeService.submit(orderDTO);
+                data.put("orderId", order.getId());
+                data.put("state", orderIntakeService.intakeState(order.getId()));
+            } else {
+                Orders order = orderService.createOrder(orderDTO);
+                data.put("orderId", order.getId());
+                data.put("state", OrderIntakeService.STATE_PERSISTED);
+            }
+            return Result.success(data);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    // 查询订单受理状态：accepted (已受理，待落库) / persisted (已落库)
+    @GetMapping("/orders/{id}/intake")
+    public Result<?> getIntakeState(@PathVariable String id) {
+        String state = orderIntakeService.intakeState(id);
+        if (state == null) {
+            return Result.error("订单不存在");
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", id);
+        data.put("state", state);
+        return Result.success(data);
     }
 
     /**
      * 获取订单列表
      * 策略：
+     * 0. 游标分页 (after) -> 按 (创建时间, 订单号) seek，返回下一页游标
      * 1. 分页/搜索 -> 走数据库 (因为条件多变，不适合缓存)
-     * 2. 全量列表 -> 走 Redis 缓存 (调用 getCachedOrderList)
+     * 2. 全量列表 -> 走 Redis 订单索引 (调用 getCachedOrderList，可按 status 过滤)
      */
     @GetMapping("/orders")
-    public Result<?> getOrders(
+    public ResponseEntity<?> getOrders(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
-            @RequestParam(required = false) String keyword
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String status,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
+        // 分支 0: 游标分页 (?after=&size=)，after 为空串表示第一页
+        if (after != null) {
+            try {
+                return ResponseEntity.ok(Result.success(orderService.pageByCursor(after, size, keyword)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.ok(Result.error("非法的分页游标"));
+            }
+        }
+
         // 分支 1：如果有分页参数，走分页查询
         if (page != null && size != null) {
             Page<Orders> pageInfo = new Page<>(page, size);
@@ -56,19 +113,49 @@ public class OrderController {
             queryWrapper.orderByDesc(Orders::getCreateTime);
 
             orderService.page(pageInfo, queryWrapper);
-            return Result.success(pageInfo);
+            // 同一个批量加载器回填当前页的订单明细，前端无需再逐单请求
+            orderService.fillOrderItems(pageInfo.getRecords());
+            return ResponseEntity.ok(Result.success(pageInfo));
         }
 
         // 分支 2：如果没有分页参数，获取全量数据 (🔥 核心修改：走 Redis 缓存)
         // 原来是: orderService.getAllOrders()
         // 现在改用:
-        return Result.success(orderService.getCachedOrderList());
+        // 订单没有变化 (版本号与 If-None-Match 一致) 直接 304，不读 Redis 也不查库；
+        // 命中时直接写出缓存的 Result JSON 字节，不再解析、序列化
+        if (status != null && !status.isEmpty()) {
+            return responseBodyCache.respond(OrderService.LIST_BODY_KEY + ":status:" + status, ResourceVersions.ORDER,
+                    acceptEncoding, ifNoneMatch, () -> orderService.getCachedOrdersByStatus(status));
+        }
+        return responseBodyCache.respond(OrderService.LIST_BODY_KEY, ResourceVersions.ORDER, acceptEncoding, ifNoneMatch,
+                orderService::getCachedOrderList);
+    }
+
+    // 按订单号 / 餐桌号片段搜索 (走内存索引)
+    @GetMapping("/orders/search")
+    public Result<?> searchOrders(@RequestParam String q,
+                                  @RequestParam(required = false) Integer limit) {
+        return Result.success(orderService.search(q, limit));
+    }
+
+    // 批量修改订单状态 (后厨一次推进多张单)：请求体 [{"id": "...", "status": "cooking"}, ...]
+    @PutMapping("/orders/status/batch")
+    public Result<?> updateOrderStatusBatch(@RequestBody List<OrderStatusUpdate> updates) {
+        try {
+            return Result.success(orderService.updateStatusBatch(updates));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
     }
 
     // 修改订单状态
     @PutMapping("/orders/{id}/status")
     public Result<?> updateOrderStatus(@PathVariable String id, @RequestParam String status) {
-        orderService.updateStatus(id, status);
+        try {
+            orderService.updateStatus(id, status);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
         return Result.success("状态更新成功");
     }
 }
\ No newline at end of file
@@ -5,10 +5,13 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.restaurant.common.Result;
 import com.example.restaurant.entity.Product;
 import com.example.restaurant.service.ProductService;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,18 +25,34 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
     /**
      * 获取商品列表
      * 策略：
+     * 0. 如果带 after 参数 -> 游标分页，按 ID seek，返回下一页游标
      * 1. 如果是分页或搜索 -> 走数据库查询 (因为条件多变，不适合缓存全量 List)
      * 2. 如果是获取全部 -> 走 Redis 缓存 (调用 getCachedProductList)
      */
     @GetMapping
-    public Result<?> list(
+    public ResponseEntity<?> list(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
-            @RequestParam(required = false) String keyword
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
+        // 分支 0: 游标分页 (?after=&size=)，after 为空串表示第一页
+        if (after != null) {
+            try {
+                return ResponseEntity.ok(Result.success(productService.pageByCursor(after, size, keyword)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.ok(Result.error("非法的分页游标"));
+            }
+        }
+
         // 分支 1: 分页查询 或 带关键词搜索 -> 直接查数据库
         if (page != null && size != null) {
             Page<Product> pageInfo = new Page<>(page, size);
@@ -50,14 +69,17 @@ public class ProductController {
             queryWrapper.orderByDesc(Product::getId);
 
             productService.page(pageInfo, queryWrapper);
-            return Result.success(pageInfo);
+            productService.fillImageVariants(pageInfo.getRecords());
+            return ResponseEntity.ok(Result.success(pageInfo));
         }
 
         // 分支 2: 获取全量列表 -> 🚀 改动点：这里改为调用带缓存的方法
         // 原来是: productService.list()
         // 现在是:
-        List<Product> list = productService.getCachedProductList();
-        return Result.success(list);
+        // 菜品没有变化 (版本号与 If-None-Match 一致) 直接 304，不读 Redis 也不查库；
+        // 命中时直接写出缓存的 Result JSON 字节 (客户端支持时返回预压缩的 gzip)，不再解析、序列化
+        return responseBodyCache.respond(ProductService.LIST_BODY_KEY, ResourceVersions.PRODUCT, acceptEncoding, ifNoneMatch,
+                productService::getCachedProductList);
     }
 
     /**
@@ -5,7 +5,12 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.restaurant.common.Result;
 import com.example.restaurant.entity.Reservation;
 import com.example.restaurant.service.ReservationService;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 
@@ -20,6 +25,9 @@ public class ReservationController {
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
     // 提交预订
     @PostMapping("/reservations")
     public Result<?> createReservation(@RequestBody Reservation reservation) {
@@ -29,19 +37,46 @@ public class ReservationController {
         }
         reservation.setCreateTime(LocalDateTime.now());
 
-        reservationService.save(reservation);
+        // 选了餐桌时检查时段冲突，同一时段同一张桌只有一个预约能成功
+        try {
+            reservationService.book(reservation);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
         return Result.success("预订申请已提交");
     }
 
+    /**
+     * 查询空闲餐桌：指定时间起一个用餐时长内没有预约、且能坐下 people 人的餐桌 (走内存时段索引)
+     */
+    @GetMapping("/reservations/availability")
+    public Result<?> availability(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time,
+                                  @RequestParam(defaultValue = "1") Integer people) {
+        return Result.success(reservationService.findFreeTables(time, Math.max(people, 1)));
+    }
+
     /**
      * 管理员获取预定列表 (带缓存)
+     * 带 after 参数时走游标分页，按 ID seek，返回下一页游标
      */
     @GetMapping("/reservations/admin")
-    public Result<?> getAllReservations(
+    public ResponseEntity<?> getAllReservations(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
-            @RequestParam(required = false) String keyword
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
+        // 分支 0: 游标分页 (?after=&size=)，after 为空串表示第一页
+        if (after != null) {
+            try {
+                return ResponseEntity.ok(Result.success(reservationService.pageByCursor(after, size, keyword)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.ok(Result.error("非法的分页游标"));
+            }
+        }
+
         // 分支 1: 分页查询 (走数据库)
         if (page != null && size != null) {
             Page<Reservation> pageInfo = new Page<>(page, size);
@@ -58,13 +93,25 @@ public class ReservationController {
             queryWrapper.orderByDesc(Reservation::getId);
 
             reservationService.page(pageInfo, queryWrapper);
-            return Result.success(pageInfo);
+            return ResponseEntity.ok(Result.success(pageInfo));
         }
 
         // 分支 2: 全量查询 (🔥 核心修改：走 Redis 缓存)
         // 原来是: reservationService.list()
         // 现在改用:
-        return Result.success(reservationService.getCachedReservationList());
+        // 预约没有变化 (版本号与 If-None-Match 一致) 直接 304，不读 Redis 也不查库；
+        // 命中时直接写出缓存的 Result JSON 字节，不再解析、序列化
+        return responseBodyCache.respond(ReservationService.LIST_BODY_KEY, ResourceVersions.RESERVATION, acceptEncoding, ifNoneMatch,
+                reservationService::getCachedReservationList);
+    }
+
+    /**
+     * 前台搜索：按姓名 / 手机号 / 餐桌号片段查询 (每次按键都会调用，走内存索引)
+     */
+    @GetMapping("/reservations/search")
+    public Result<?> searchReservations(@RequestParam String q,
+                                        @RequestParam(required = false) Integer limit) {
+        return Result.success(reservationService.search(q, limit));
     }
 
     /**
@@ -78,7 +125,12 @@ public class ReservationController {
         reservation.setId(id);
         reservation.setStatus(status);
 
-        reservationService.updateById(reservation);
+        // 已取消的预约恢复时会重新检查时段冲突
+        try {
+            reservationService.updateById(reservation);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
 
         return Result.success("状态更新成功");
     }
@@ -4,9 +4,12 @@ import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.example.restaurant.common.Result;
 import com.example.restaurant.entity.User;
+import com.example.restaurant.interceptor.LoginInterceptor;
 import com.example.restaurant.service.UserService;
 import com.example.restaurant.utils.JwtUtils;
 import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.TokenCache;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +30,9 @@ public class UserController {
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private TokenCache tokenCache;
+
     /**
      * 登录接口
      */
@@ -49,7 +55,7 @@ public class UserController {
 
             // 3. 🔥 核心升级：将用户信息存入 Redis (有效期 24 小时)
             // Key 格式: "login:token:你的Token字符串"
-            String redisKey = "login:token:" + token;
+            String redisKey = TokenCache.TOKEN_KEY_PREFIX + token;
 
             // 存入 Redis，这样拦截器就能验证 Token 是否有效了
             redisUtils.set(redisKey, JSON.toJSONString(dbUser), 86400);
@@ -62,12 +68,17 @@ public class UserController {
     }
 
     /**
-     * 获取当前用户信息 (从 Redis 缓存取，速度更快)
+     * 获取当前用户信息 (拦截器已放入 request，无需再读 Redis)
      */
     @GetMapping("/user/info")
-    public Result getUserInfo(@RequestHeader("token") String token) {
-        // 直接从 Redis 拿，不查数据库
-        String redisKey = "login:token:" + token;
+    public Result getUserInfo(@RequestHeader("token") String token, HttpServletRequest request) {
+        Object currentUser = request.getAttribute(LoginInterceptor.CURRENT_USER);
+        if (currentUser != null) {
+            return Result.success(currentUser);
+        }
+
+        // 兜底：直接从 Redis 拿，不查数据库
+        String redisKey = TokenCache.TOKEN_KEY_PREFIX + token;
         String userJson = redisUtils.get(redisKey);
 
         if (userJson != null) {
@@ -81,8 +92,8 @@ public class UserController {
      */
     @PostMapping("/logout")
     public Result logout(@RequestHeader("token") String token) {
-        // 删除 Redis 里的 Token，这就相当于“注销”了
-        redisUtils.delete("login:token:" + token);
+        // 删除 Redis 里的 Token，这就相当于“注销”了；同时通知所有节点清掉本地令牌缓存
+        tokenCache.revoke(token);
         return Result.success("退出成功");
     }
 }
\ No newline at end of file
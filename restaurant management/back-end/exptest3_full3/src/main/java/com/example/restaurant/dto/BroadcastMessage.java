@@ -0,0 +1,19 @@
+package com.example.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 跨节点广播消息
+ * 一个节点产生的 WebSocket 事件经广播总线转发给其他节点，由它们推送给各自的本地连接
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastMessage {
+    private String origin;   // 产生事件的节点 (节点 ID + 启动标识，重启后不同)
+    private Long seq;        // 该节点内的事件序号，用于去重和保序
+    private String[] topics; // 事件主题
+    private String payload;  // 已序列化好的 WsEvent JSON
+}
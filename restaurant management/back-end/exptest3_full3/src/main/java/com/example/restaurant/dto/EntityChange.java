@@ -0,0 +1,21 @@
+package com.example.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 实体变更描述，用作 PRODUCT_UPDATE / RESERVATION_UPDATE 事件的内容
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityChange {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    private String action; // created / updated / deleted
+    private Object id;     // 实体主键
+    private Object entity; // 新增时为完整实体；更新时为本次提交的字段 (未修改的字段为空)；删除时为空
+}
@@ -0,0 +1,16 @@
+package com.example.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 空闲餐桌，用作预约可用性查询的结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FreeTable {
+    private String tableId;   // 餐桌号
+    private Integer capacity; // 可容纳人数
+}
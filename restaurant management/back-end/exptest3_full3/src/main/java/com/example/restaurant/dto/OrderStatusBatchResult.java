@@ -0,0 +1,17 @@
+package com.example.restaurant.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量改状态的结果，同时用作 ORDER_STATUS_BATCH 事件的内容
+ */
+@Data
+public class OrderStatusBatchResult {
+    private List<OrderStatusChange> updated = new ArrayList<>(); // 已生效的变更
+    private Map<String, String> rejected = new LinkedHashMap<>(); // 未生效的订单号 -> 原因
+}
@@ -0,0 +1,17 @@
+package com.example.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 订单状态变更描述，用作 ORDER_UPDATE 事件的内容 (ORDER_STATUS_BATCH 事件为它的列表)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChange {
+    private String id;        // 订单号
+    private String oldStatus; // 变更前状态
+    private String newStatus; // 变更后状态
+}
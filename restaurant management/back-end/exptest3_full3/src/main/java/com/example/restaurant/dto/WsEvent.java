@@ -0,0 +1,20 @@
+package com.example.restaurant.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * WebSocket 推送事件
+ * 携带发生变化的实体，客户端可直接在本地应用变更；
+ * seqs 按主题编号：每个主题在同一个 origin 内各自连续递增，客户端按 (origin, 主题) 分别检查自己订阅的主题，
+ * 发现序号不连续 (连接积压被丢弃等) 时再全量刷新
+ */
+@Data
+public class WsEvent {
+    private String type;    // 事件类型：NEW_ORDER / ORDER_UPDATE / ORDER_STATUS_BATCH / PRODUCT_UPDATE / RESERVATION_UPDATE
+    private String origin;  // 产生事件的节点
+    private Map<String, Long> seqs; // 事件所属主题 -> 该主题在本 origin 内的序号
+    private Long timestamp; // 事件产生时间 (毫秒时间戳)
+    private Object data;    // 事件内容 (变化的实体或变更描述)
+}
@@ -21,6 +21,12 @@ public class Product {
 
     private String imageUrl;
 
+    // 缩略图 / 中图地址 (后台生成，尚未生成时为空，前端回退到 imageUrl)
+    @TableField(exist = false)
+    private String thumbUrl;
+
+    @TableField(exist = false)
+    private String mediumUrl;
 
     @TableField("is_recommended")
     private Boolean isRecommend;
@@ -0,0 +1,22 @@
+package com.example.restaurant.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 销售汇总 (一个维度取值一行)
+ * dimension 为 product 时 bucket 是菜品 ID、label 是菜品名；category 时 bucket 是分类；
+ * hour / day 时 bucket 是 yyyy-MM-dd HH / yyyy-MM-dd
+ */
+@Data
+@TableName("sales_rollup")
+public class SalesRollup {
+    private String dimension;
+    private String bucket;
+    private String label;
+    private Long orderCount;
+    private Long quantity;
+    private BigDecimal revenue;
+}
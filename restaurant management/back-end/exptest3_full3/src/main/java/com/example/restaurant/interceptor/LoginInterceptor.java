@@ -2,24 +2,55 @@ package com.example.restaurant.interceptor;
 
 import com.alibaba.fastjson2.JSON;
 import com.example.restaurant.entity.User;
+import com.example.restaurant.utils.CacheMetrics;
 import com.example.restaurant.utils.JwtUtils;
 import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.TokenCache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 升级版登录拦截器
  * 集成 Redis 验证，支持“强退”和“在线状态检测”
+ * 验证通过的令牌缓存在本地 (TokenCache)，常规请求不走网络、不重复验签
+ * 鉴权耗时记录在 restaurant.auth{result=ok|unauthorized}，本地缓存命中情况记录在 restaurant.cache.gets{cache=login:token}
  */
 @Component
 public class LoginInterceptor implements HandlerInterceptor {
 
+    // 当前登录用户在 request 中的属性名，Controller 可直接读取
+    public static final String CURRENT_USER = "currentUser";
+
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer authorizedTimer;
+    private Timer unauthorizedTimer;
+
+    @PostConstruct
+    public void init() {
+        authorizedTimer = authTimer("ok");
+        unauthorizedTimer = authTimer("unauthorized");
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // 1. 放行 OPTIONS 预检请求 (CORS)
@@ -27,6 +58,14 @@ public class LoginInterceptor implements HandlerInterceptor {
             return true;
         }
 
+        long start = System.nanoTime();
+        boolean authorized = authenticate(request, response);
+        (authorized ? authorizedTimer : unauthorizedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return authorized;
+    }
+
+    // 校验令牌，通过时把用户放进 request
+    private boolean authenticate(HttpServletRequest request, HttpServletResponse response) {
         // 2. 获取令牌
         String token = request.getHeader("token");
         if (token == null || token.isEmpty()) {
@@ -34,30 +73,50 @@ public class LoginInterceptor implements HandlerInterceptor {
             return false;
         }
 
-        // 3. 🔥 核心升级：先去 Redis 查 Token 是否有效
-        // Key 的格式约定为 "login:token:{token字符串}"
-        String redisKey = "login:token:" + token;
+        // 3. 先查本地缓存：命中说明该令牌已验证过且未被吊销
+        TokenCache.TokenInfo info = tokenCache.get(token);
+        if (info != null) {
+            cacheMetrics.hit(TokenCache.TOKEN_KEY_PREFIX, CacheMetrics.TIER_LOCAL);
+        } else {
+            cacheMetrics.miss(TokenCache.TOKEN_KEY_PREFIX, CacheMetrics.TIER_LOCAL);
+            long generation = tokenCache.generation();
 
-        // 如果 Redis 里找不到这个 Token，说明：
-        // a. Token 过期了
-        // b. 用户点击了注销
-        // c. 管理员把用户踢下线了
-        if (!redisUtils.hasKey(redisKey)) {
-            response.setStatus(401);
-            return false;
-        }
+            // 4. 🔥 核心升级：去 Redis 查 Token 是否有效
+            // Key 的格式约定为 "login:token:{token字符串}"
+            // 如果 Redis 里找不到这个 Token，说明：
+            // a. Token 过期了
+            // b. 用户点击了注销
+            // c. 管理员把用户踢下线了
+            String userJson = cacheMetrics.recordLoad(TokenCache.TOKEN_KEY_PREFIX, CacheMetrics.TIER_REDIS,
+                    () -> redisUtils.get(TokenCache.TOKEN_KEY_PREFIX + token));
+            if (userJson == null) {
+                response.setStatus(401);
+                return false;
+            }
 
-        // 4. (可选) 如果需要用户信息，可以从 Redis 取出来放到 request 里供 Controller 使用
-        // String userInfo = redisUtils.get(redisKey);
-        // request.setAttribute("currentUser", JSON.parseObject(userInfo, User.class));
+            // 5. 依然保留 JWT 签名校验作为双重保险
+            Claims claims;
+            try {
+                claims = JwtUtils.parseToken(token);
+            } catch (Exception e) {
+                response.setStatus(401);
+                return false;
+            }
 
-        // 5. 依然可以保留 JWT 格式校验作为双重保险
-        try {
-            JwtUtils.parseToken(token);
-            return true;
-        } catch (Exception e) {
-            response.setStatus(401);
-            return false;
+            long expireAt = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+            info = new TokenCache.TokenInfo(JSON.parseObject(userJson, User.class), claims, expireAt);
+            tokenCache.put(token, info, generation);
         }
+
+        // 6. 把用户信息放到 request 里供 Controller 使用
+        request.setAttribute(CURRENT_USER, info.user());
+        return true;
+    }
+
+    private Timer authTimer(String result) {
+        return Timer.builder("restaurant.auth")
+                .description("登录拦截器鉴权耗时")
+                .tag("result", result)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.example.restaurant.interceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务层方法耗时统计
+ * 记录 service.impl 包下各 *ServiceImpl 公开方法的调用耗时，指标 restaurant.service{class, method, exception}；
+ * 只统计经过 Spring 代理的调用，类内部 this.xxx() 的自调用不计入
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 每个 (实现类, 方法) 正常返回时使用的计时器；继承自 MyBatis-Plus ServiceImpl 的方法在各实现类分开统计
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("execution(public * *(..)) && within(com.example.restaurant.service.impl.*ServiceImpl)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            timers.computeIfAbsent(new TimerKey(joinPoint.getTarget().getClass(), method), k -> timer(joinPoint, "none"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(joinPoint, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder("restaurant.service")
+                .description("业务层方法耗时")
+                .tag("class", AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private record TimerKey(Class<?> type, Method method) {
+    }
+}
@@ -2,9 +2,28 @@ package com.example.restaurant.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.restaurant.entity.OrderItem;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface OrderItemMapper extends BaseMapper<OrderItem> {
     // 必须存在这个文件，OrderServiceImpl 才能引用它
-}
\ No newline at end of file
+
+    /**
+     * 批量插入订单明细 (一条多行 INSERT 语句)，自增主键会回填到每个明细对象
+     * @param items 订单明细，调用方负责控制单批数量
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO order_items (order_id, product_id, product_name, price, quantity) VALUES " +
+            "<foreach collection='items' item='item' separator=','>" +
+            "(#{item.orderId}, #{item.productId}, #{item.productName}, #{item.price}, #{item.quantity})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "items.id", keyColumn = "id")
+    int insertBatch(@Param("items") List<OrderItem> items);
+}
@@ -2,10 +2,27 @@ package com.example.restaurant.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.restaurant.entity.Orders;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface OrdersMapper extends BaseMapper<Orders> {
     // 关键点：这里必须继承 BaseMapper<Orders>
     // 之前报错是因为这里没写泛型或者没继承 BaseMapper
-}
\ No newline at end of file
+
+    /**
+     * 批量插入订单主表 (一条多行 INSERT 语句)，用于后台批量提交
+     * @param orders 订单，调用方负责控制单批数量
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders (id, table_id, total_amount, status, create_time) VALUES " +
+            "<foreach collection='orders' item='order' separator=','>" +
+            "(#{order.id}, #{order.tableId}, #{order.totalAmount}, #{order.status}, #{order.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("orders") List<Orders> orders);
+}
@@ -0,0 +1,38 @@
+package com.example.restaurant.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.restaurant.entity.SalesRollup;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface SalesRollupMapper extends BaseMapper<SalesRollup> {
+
+    /**
+     * 批量累加汇总增量 (一条多行 INSERT ... ON DUPLICATE KEY UPDATE)
+     * 各节点只提交自己的增量，数据库里按主键相加，多节点同时提交互不覆盖
+     * @param rows 增量，调用方负责控制单批数量
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO sales_rollup (dimension, bucket, label, order_count, quantity, revenue) VALUES " +
+            "<foreach collection='rows' item='row' separator=','>" +
+            "(#{row.dimension}, #{row.bucket}, #{row.label}, #{row.orderCount}, #{row.quantity}, #{row.revenue})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE label = COALESCE(VALUES(label), label)," +
+            " order_count = order_count + VALUES(order_count)," +
+            " quantity = quantity + VALUES(quantity)," +
+            " revenue = revenue + VALUES(revenue)" +
+            "</script>")
+    int upsertAdd(@Param("rows") List<SalesRollup> rows);
+
+    /**
+     * 清空汇总表 (全量重建前)
+     */
+    @Delete("DELETE FROM sales_rollup")
+    int deleteAll();
+}
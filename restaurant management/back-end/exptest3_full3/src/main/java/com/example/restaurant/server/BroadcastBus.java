@@ -0,0 +1,22 @@
+package com.example.restaurant.server;
+
+import com.example.restaurant.dto.BroadcastMessage;
+
+import java.util.function.Consumer;
+
+/**
+ * WebSocket 跨节点广播总线
+ * 由 restaurant.websocket.cluster 选择实现：redis (Redis 发布/订阅) 或 local (单进程内)
+ */
+public interface BroadcastBus {
+
+    /**
+     * 发布消息给所有节点 (包括自己)
+     */
+    void publish(BroadcastMessage message);
+
+    /**
+     * 注册消息处理器
+     */
+    void subscribe(Consumer<BroadcastMessage> handler);
+}
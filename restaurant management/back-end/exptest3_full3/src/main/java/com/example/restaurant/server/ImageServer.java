@@ -0,0 +1,277 @@
+package com.example.restaurant.server;
+
+import com.example.restaurant.service.ImageStorageService;
+import com.example.restaurant.utils.HotFileCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 图片静态文件服务
+ * 1. 内容寻址的文件名 (哈希命名，内容永不变化) 用哈希作强 ETag，并允许浏览器缓存一年 (immutable)；
+ *    旧的 UUID 命名图片用 大小-修改时间 作 ETag，缓存一天
+ * 2. 支持 If-None-Match / If-Modified-Since (304) 和单段 Range (206)
+ * 3. 热点小图直接从内存返回；大文件交给 Tomcat sendfile 零拷贝发送，不支持时用 FileChannel.transferTo
+ */
+@Component
+public class ImageServer {
+
+    // 合法文件名 (防止路径穿越)
+    private static final Pattern NAME = Pattern.compile("[0-9a-zA-Z_-]+\\.[0-9a-zA-Z]{1,5}");
+    // 内容寻址的原图及其变体：{sha256}[_variant].ext
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64}(?:_[a-z]+)?)\\.[0-9a-z]{1,5}");
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_DEFAULT = "public, max-age=86400";
+
+    // Tomcat sendfile 约定的请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Value("${restaurant.image.hot-max-bytes:33554432}")
+    private long hotMaxBytes;
+
+    @Value("${restaurant.image.hot-max-file-bytes:262144}")
+    private long hotMaxFileBytes;
+
+    @Value("${restaurant.image.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    private HotFileCache hotCache;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder hotMisses = new LongAdder();
+    private final LongAdder sendfiles = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        hotCache = new HotFileCache(hotMaxBytes, hotMaxFileBytes);
+    }
+
+    /**
+     * 输出图片
+     * @param name 文件名
+     */
+    public void serve(String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        requests.increment();
+        if (name == null || !NAME.matcher(name).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = imageStorageService.storageDir().resolve(name);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            hotCache.invalidate(name);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        var matcher = CONTENT_ADDRESSED.matcher(name);
+        boolean immutable = matcher.matches();
+        String etag = immutable
+                ? "\"" + matcher.group(1) + "\""
+                : "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? CACHE_IMMUTABLE : CACHE_DEFAULT);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        if (notModified(request, etag, lastModified)) {
+            notModified.increment();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // 解析 Range：null 表示返回整个文件
+        long start = 0;
+        long end = size - 1;
+        long[] range = parseRange(request, etag, size);
+        if (range != null) {
+            if (range.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range[0];
+            end = range[1];
+            partial.increment();
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        // 1. 热点小图：直接从内存写出
+        HotFileCache.Entry entry = hotCache.get(name, lastModified);
+        if (entry != null) {
+            hotHits.increment();
+        } else {
+            hotMisses.increment();
+            entry = hotCache.admit(name, file, size, lastModified);
+        }
+        if (entry != null) {
+            response.getOutputStream().write(entry.data(), (int) start, (int) length);
+            bytesServed.add(length);
+            return;
+        }
+
+        // 2. 大文件：交给 Tomcat sendfile，由内核直接从页缓存发送到 socket
+        if (length >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            sendfiles.increment();
+            bytesServed.add(length);
+            return;
+        }
+
+        // 3. 其他情况：FileChannel.transferTo 写到响应流
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            bytesServed.add(length - remaining);
+        }
+    }
+
+    /**
+     * 图片服务统计：请求数、输出字节数、热点命中率、304 / 206 / sendfile 次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = hotHits.sum();
+        long misses = hotMisses.sum();
+        stats.put("requests", requests.sum());
+        stats.put("bytesServed", bytesServed.sum());
+        stats.put("notModified", notModified.sum());
+        stats.put("partial", partial.sum());
+        stats.put("sendfile", sendfiles.sum());
+        stats.put("hotHits", hits);
+        stats.put("hotMisses", misses);
+        stats.put("hotHitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("hotEntries", hotCache.size());
+        stats.put("hotBytes", hotCache.usedBytes());
+        return stats;
+    }
+
+    /**
+     * 条件请求：If-None-Match 优先，其次 If-Modified-Since (精确到秒)
+     */
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析单段 Range
+     * @return null 表示返回整个文件 (无 Range、多段 Range 或 If-Range 不匹配)；空数组表示范围无法满足；否则为 [start, end]
+     */
+    private long[] parseRange(HttpServletRequest request, String etag, long size) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith("bytes=") || header.contains(",")) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(etag)) {
+            return null;
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // bytes=-N：最后 N 个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                String last = spec.substring(dash + 1);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
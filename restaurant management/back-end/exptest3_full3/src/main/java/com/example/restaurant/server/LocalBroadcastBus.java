@@ -0,0 +1,35 @@
+package com.example.restaurant.server;
+
+import com.example.restaurant.dto.BroadcastMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内广播总线
+ * 单节点部署或本地测试时使用，不依赖 Redis
+ * 只适合单个应用上下文：WebSocketServer 的连接、主题订阅和节点标识 (origin) 都是静态的，
+ * 同一 JVM 内启动多个上下文时它们共用一份，彼此的消息会被当成自己发出的而丢弃，测不出跨节点转发；
+ * 跨节点行为需要用多个 JVM 加 Redis 总线验证
+ */
+@Component
+@ConditionalOnProperty(name = "restaurant.websocket.cluster", havingValue = "local")
+public class LocalBroadcastBus implements BroadcastBus {
+
+    private static final List<Consumer<BroadcastMessage>> handlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(BroadcastMessage message) {
+        for (Consumer<BroadcastMessage> handler : handlers) {
+            handler.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BroadcastMessage> handler) {
+        handlers.add(handler);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.restaurant.server;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.restaurant.dto.BroadcastMessage;
+import com.example.restaurant.utils.RedisUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 发布/订阅的广播总线 (默认实现)
+ * 所有节点订阅同一个频道，任一节点发布的事件都会到达全部节点
+ */
+@Component
+@ConditionalOnProperty(name = "restaurant.websocket.cluster", havingValue = "redis", matchIfMissing = true)
+public class RedisBroadcastBus implements BroadcastBus {
+
+    // WebSocket 事件广播频道
+    public static final String CHANNEL = "ws:broadcast";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Override
+    public void publish(BroadcastMessage message) {
+        redisUtils.publish(CHANNEL, JSON.toJSONString(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<BroadcastMessage> handler) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            handler.accept(JSON.parseObject(body, BroadcastMessage.class));
+        }, new ChannelTopic(CHANNEL));
+    }
+}
@@ -1,33 +1,224 @@
 package com.example.restaurant.server;
 
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.restaurant.dto.BroadcastMessage;
+import com.example.restaurant.dto.WsEvent;
+import com.example.restaurant.utils.ThreadFactories;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * WebSocket 服务端点
  * 前端连接地址: ws://localhost:8085/ws/orders
+ *
+ * 按主题订阅：连接时通过 ?topics=orders,menu (或 ?tableId=A01 订阅本桌订单) 指定，
+ * 之后也可发送 {"action":"subscribe|unsubscribe","topics":[...]} 调整；不指定时订阅全部公共主题。
+ * 可用主题：orders、orders:table:{桌号}、reservations、menu
+ *
+ * 多节点部署：事件先推送给本节点的连接，再经 BroadcastBus (默认 Redis 频道) 发给其他节点转发；
+ * 接收方按 (origin, 广播序号) 去重并丢弃乱序的旧消息
+ *
+ * 事件按主题编号 (seqs：主题 -> 该主题在本 origin 内的序号)，每个主题的序号各自连续，
+ * 客户端只检查自己订阅的主题，序号不连续 (丢消息) 时全量刷新；不会因为其他主题的事件出现空洞
+ *
+ * 群发不阻塞调用方：每个连接有一个有界发送队列，由后台线程通过异步发送逐条排空；
+ * 慢连接积压超过队列容量时按 overflow-policy 处理 (丢最旧 / 丢最新 / 踢下线)
  */
 @ServerEndpoint("/ws/orders")
 @Component
 public class WebSocketServer {
 
+    /**
+     * 发送队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST, // 丢弃队列中最旧的消息
+        DROP_NEWEST, // 丢弃当前这条新消息
+        EVICT        // 关闭该连接
+    }
+
+    // 主题：全部订单、单桌订单前缀、预约、菜单
+    public static final String TOPIC_ORDERS = "orders";
+    public static final String TOPIC_TABLE_PREFIX = "orders:table:";
+    public static final String TOPIC_RESERVATIONS = "reservations";
+    public static final String TOPIC_MENU = "menu";
+    private static final List<String> DEFAULT_TOPICS = List.of(TOPIC_ORDERS, TOPIC_RESERVATIONS, TOPIC_MENU);
+
     // 线程安全的 Set，用来存放每个客户端对应的 WebSocket 对象
     private static CopyOnWriteArraySet<WebSocketServer> webSocketSet = new CopyOnWriteArraySet<>();
 
+    // 主题 -> 订阅该主题的连接，广播时只遍历感兴趣的连接
+    private static final Map<String, Set<WebSocketServer>> topicSessions = new ConcurrentHashMap<>();
+
+    // 发起异步发送的后台线程，调用方线程只负责入队 (虚拟线程模式下由 setter 替换为虚拟线程执行器)
+    private static volatile ExecutorService sendExecutor = ThreadFactories.newBlockingExecutor("ws-send-", 2, false);
+
+    // 以下配置由 Spring 通过 setter 注入 (端点实例由 WebSocket 容器创建，只能放在静态字段里)
+    private static int queueCapacity = 256;
+    private static OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private static long sendTimeoutMillis = 5000;
+
+    // 主题 -> 该主题的事件序号 (各自连续)，客户端据此判断有没有漏收
+    private static final Map<String, AtomicLong> topicSeqs = new ConcurrentHashMap<>();
+    // 发往广播总线的消息序号，只用于其他节点去重保序，不发给客户端
+    private static final AtomicLong publishSeq = new AtomicLong();
+    private static final ReentrantLock sequenceLock = new ReentrantLock();
+
+    // 本节点标识：配置的节点 ID + 启动随机串 (重启后序号从头开始，不能与重启前的消息混淆)
+    private static String origin = UUID.randomUUID().toString().substring(0, 8);
+
+    // 跨节点广播总线
+    private static BroadcastBus broadcastBus;
+
+    // 按顺序发布到广播总线，保证同一节点的事件按序号先后到达其他节点
+    private static final ExecutorService publishExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ws-publish");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 其他节点最近一次转发的事件序号，用于去重和保序
+    private static final Map<String, Long> lastSeqByOrigin = new ConcurrentHashMap<>();
+
+    // 统计指标
+    private static final LongAdder enqueuedCount = new LongAdder();
+    private static final LongAdder sentCount = new LongAdder();
+    private static final LongAdder droppedCount = new LongAdder();
+    private static final LongAdder failedCount = new LongAdder();
+    private static final LongAdder evictedCount = new LongAdder();
+    private static final LongAdder sendLatencyNanos = new LongAdder();
+    private static final AtomicLong maxSendLatencyNanos = new AtomicLong();
+
+    // 群发耗时 (入队到全部目标连接) 和单条消息发送延迟 (入队到发送完成)；注入 MeterRegistry 前为空操作
+    private static Timer fanoutTimer = Timer.builder("restaurant.websocket.fanout").register(new CompositeMeterRegistry());
+    private static Timer sendTimer = Timer.builder("restaurant.websocket.send").register(new CompositeMeterRegistry());
+
     // 与某个客户端的连接会话，需要通过它来给客户端发送数据
     private Session session;
 
+    // 该连接的待发送队列
+    private final Queue<Outbound> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    // 是否有一条消息正在异步发送中 (同一连接同一时刻只能有一个未完成的异步发送)
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // 该连接订阅的主题
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    @Value("${restaurant.node-id:node}")
+    public void setNodeId(String nodeId) {
+        WebSocketServer.origin = nodeId + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Autowired
+    public void setBroadcastBus(BroadcastBus bus) {
+        WebSocketServer.broadcastBus = bus;
+        bus.subscribe(WebSocketServer::onClusterMessage);
+    }
+
+    @Value("${restaurant.websocket.queue-capacity:256}")
+    public void setQueueCapacity(int capacity) {
+        WebSocketServer.queueCapacity = Math.max(1, capacity);
+    }
+
+    @Value("${restaurant.websocket.overflow-policy:DROP_OLDEST}")
+    public void setOverflowPolicy(OverflowPolicy policy) {
+        WebSocketServer.overflowPolicy = policy;
+    }
+
+    @Value("${restaurant.websocket.send-timeout-ms:5000}")
+    public void setSendTimeoutMillis(long timeout) {
+        WebSocketServer.sendTimeoutMillis = timeout;
+    }
+
+    /**
+     * 注册推送指标：在线连接数、队列积压、入队/发送/丢弃/失败/踢出次数、群发耗时、发送延迟
+     */
+    @Autowired
+    public void setMeterRegistry(MeterRegistry registry) {
+        Gauge.builder("restaurant.websocket.sessions", webSocketSet, Set::size)
+                .description("WebSocket 在线连接数").register(registry);
+        Gauge.builder("restaurant.websocket.queue.depth", WebSocketServer::queueDepth)
+                .description("所有连接待发送消息总数").register(registry);
+        bindCounter(registry, "enqueued", enqueuedCount);
+        bindCounter(registry, "sent", sentCount);
+        bindCounter(registry, "dropped", droppedCount);
+        bindCounter(registry, "failed", failedCount);
+        bindCounter(registry, "evicted", evictedCount);
+        WebSocketServer.fanoutTimer = Timer.builder("restaurant.websocket.fanout")
+                .description("一次群发放入所有目标连接发送队列的耗时").register(registry);
+        WebSocketServer.sendTimer = Timer.builder("restaurant.websocket.send")
+                .description("单条消息从入队到发送完成的延迟").register(registry);
+    }
+
+    private static void bindCounter(MeterRegistry registry, String outcome, LongAdder adder) {
+        FunctionCounter.builder("restaurant.websocket.messages", adder, LongAdder::sum)
+                .description("WebSocket 消息数").tag("outcome", outcome).register(registry);
+    }
+
+    // 广播发送改用虚拟线程；发布线程 ws-publish 保持单线程，跨节点事件顺序依赖它
+    @Value("${spring.threads.virtual.enabled:false}")
+    public void setVirtualThreads(boolean virtual) {
+        if (virtual && ThreadFactories.virtualThreadsAvailable()) {
+            ExecutorService previous = WebSocketServer.sendExecutor;
+            WebSocketServer.sendExecutor = ThreadFactories.newBlockingExecutor("ws-send-", 2, true);
+            previous.shutdown();
+        }
+    }
+
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session) {
         this.session = session;
+        session.getAsyncRemote().setSendTimeout(sendTimeoutMillis);
         webSocketSet.add(this); // 加入集合
-        System.out.println("【WebSocket】有新连接加入！当前在线人数为" + webSocketSet.size());
+
+        // 连接参数中的订阅主题，未指定时订阅全部公共主题 (兼容旧客户端)
+        Map<String, List<String>> params = session.getRequestParameterMap();
+        List<String> requested = new ArrayList<>();
+        for (String value : params.getOrDefault("topics", Collections.emptyList())) {
+            requested.addAll(Arrays.asList(value.split(",")));
+        }
+        for (String tableId : params.getOrDefault("tableId", Collections.emptyList())) {
+            requested.add(tableTopic(tableId));
+        }
+        subscribe(requested.isEmpty() ? DEFAULT_TOPICS : requested);
+        System.out.println("【WebSocket】有新连接加入！当前在线人数为" + webSocketSet.size() + "，订阅主题：" + topics);
     }
 
     /**
@@ -35,7 +226,9 @@ public class WebSocketServer {
      */
     @OnClose
     public void onClose() {
+        closed.set(true);
         webSocketSet.remove(this); // 从集合中删除
+        unsubscribe(new ArrayList<>(topics));
         System.out.println("【WebSocket】有一连接关闭！当前在线人数为" + webSocketSet.size());
     }
 
@@ -45,6 +238,22 @@ public class WebSocketServer {
     @OnMessage
     public void onMessage(String message, Session session) {
         System.out.println("【WebSocket】收到来自客户端的消息:" + message);
+        // 订阅指令：{"action":"subscribe","topics":["orders:table:A01"]}
+        try {
+            JSONObject command = JSON.parseObject(message);
+            JSONArray requested = command == null ? null : command.getJSONArray("topics");
+            if (requested == null) {
+                return;
+            }
+            List<String> list = requested.toJavaList(String.class);
+            if ("subscribe".equals(command.getString("action"))) {
+                subscribe(list);
+            } else if ("unsubscribe".equals(command.getString("action"))) {
+                unsubscribe(list);
+            }
+        } catch (Exception e) {
+            // 非 JSON 消息 (如心跳) 直接忽略
+        }
     }
 
     /**
@@ -59,21 +268,281 @@ public class WebSocketServer {
     /**
      * 群发自定义消息 (核心方法)
      * 在 OrderServiceImpl 中调用这个方法通知所有前端
+     * 只把消息放入各连接的发送队列，立即返回，不会被慢连接拖住
      */
     public static void sendInfo(String message) {
+        long start = System.nanoTime();
         for (WebSocketServer item : webSocketSet) {
-            try {
+            item.sendMessage(message);
+        }
+        fanoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 按主题推送类型化事件，只发送给订阅了任一主题的连接 (同一连接只发一次)
+     * @param type 事件类型
+     * @param data 事件内容 (变化的实体或变更描述)
+     * @param eventTopics 事件所属主题
+     */
+    public static void sendEvent(String type, Object data, String... eventTopics) {
+        WsEvent event = new WsEvent();
+        event.setType(type);
+        event.setOrigin(origin);
+        event.setTimestamp(System.currentTimeMillis());
+        event.setData(data);
+
+        String payload;
+        // 分配序号与提交发布任务必须原子进行，否则其他节点可能先收到大序号而丢弃小序号
+        sequenceLock.lock();
+        try {
+            Map<String, Long> seqs = new LinkedHashMap<>();
+            for (String topic : eventTopics) {
+                seqs.put(topic, topicSeqs.computeIfAbsent(topic, k -> new AtomicLong()).incrementAndGet());
+            }
+            event.setSeqs(seqs);
+            payload = JSON.toJSONString(event);
+            BroadcastBus bus = broadcastBus;
+            if (bus != null) {
+                BroadcastMessage message = new BroadcastMessage(origin, publishSeq.incrementAndGet(), eventTopics, payload);
+                publishExecutor.execute(() -> {
+                    try {
+                        bus.publish(message);
+                    } catch (Exception e) {
+                        System.err.println("【WebSocket】跨节点广播失败: " + e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            sequenceLock.unlock();
+        }
+
+        // 推给本节点的连接，其他节点由广播总线转发
+        sendToTopics(payload, eventTopics);
+    }
+
+    /**
+     * 处理其他节点发来的事件：忽略自己发出的，按 origin 去重、丢弃乱序的旧消息后推给本地连接
+     */
+    private static void onClusterMessage(BroadcastMessage message) {
+        if (message == null || origin.equals(message.getOrigin()) || message.getSeq() == null) {
+            return;
+        }
+        boolean[] fresh = new boolean[1];
+        lastSeqByOrigin.compute(message.getOrigin(), (k, last) -> {
+            if (last != null && message.getSeq() <= last) {
+                return last;
+            }
+            fresh[0] = true;
+            return message.getSeq();
+        });
+        if (fresh[0] && message.getTopics() != null) {
+            sendToTopics(message.getPayload(), message.getTopics());
+        }
+    }
+
+    /**
+     * 把消息发送给订阅了任一主题的连接
+     */
+    public static void sendToTopics(String message, String... eventTopics) {
+        long start = System.nanoTime();
+        if (eventTopics.length == 1) {
+            for (WebSocketServer item : topicSessions.getOrDefault(eventTopics[0], Collections.emptySet())) {
                 item.sendMessage(message);
-            } catch (Exception e) {
+            }
+        } else {
+            Set<WebSocketServer> targets = new HashSet<>();
+            for (String topic : eventTopics) {
+                targets.addAll(topicSessions.getOrDefault(topic, Collections.emptySet()));
+            }
+            for (WebSocketServer item : targets) {
+                item.sendMessage(message);
+            }
+        }
+        fanoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 单桌订单主题
+     */
+    public static String tableTopic(String tableId) {
+        return TOPIC_TABLE_PREFIX + tableId;
+    }
+
+    // 订阅主题 (忽略不认识的主题)
+    private void subscribe(List<String> requested) {
+        for (String raw : requested) {
+            String topic = raw.trim();
+            boolean valid = DEFAULT_TOPICS.contains(topic)
+                    || (topic.startsWith(TOPIC_TABLE_PREFIX) && topic.length() > TOPIC_TABLE_PREFIX.length());
+            if (valid && !closed.get() && topics.add(topic)) {
+                // 加入必须在 compute 内完成，否则可能加进 unsubscribe 刚刚因为空集合而移除的旧 Set
+                topicSessions.compute(topic, (k, sessions) -> {
+                    Set<WebSocketServer> target = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+                    target.add(this);
+                    return target;
+                });
+                // 订阅期间连接被关闭：onClose 可能没看到这个主题，这里自己撤掉
+                if (closed.get()) {
+                    unsubscribe(List.of(topic));
+                }
+            }
+        }
+    }
+
+    // 取消订阅，主题没有订阅者时移除该主题
+    private void unsubscribe(List<String> requested) {
+        for (String raw : requested) {
+            String topic = raw.trim();
+            if (topics.remove(topic)) {
+                topicSessions.computeIfPresent(topic, (k, sessions) -> {
+                    sessions.remove(this);
+                    return sessions.isEmpty() ? null : sessions;
+                });
+            }
+        }
+    }
+
+    /**
+     * 实现服务器主动推送：入队并触发异步发送
+     */
+    public void sendMessage(String message) {
+        if (closed.get()) {
+            return;
+        }
+        // 先用 CAS 占到一个名额再入队，多个线程同时发送也不会超过容量
+        while (true) {
+            int current = queued.get();
+            if (current < queueCapacity) {
+                if (queued.compareAndSet(current, current + 1)) {
+                    break;
+                }
                 continue;
             }
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> {
+                    droppedCount.increment();
+                    return;
+                }
+                case EVICT -> {
+                    evict("发送队列积压超过 " + queueCapacity);
+                    return;
+                }
+                default -> {
+                    // 丢掉最旧的一条，直接沿用它的名额；队列暂时为空 (drain 已取走但还没减计数) 时重试
+                    if (outbound.poll() != null) {
+                        droppedCount.increment();
+                        outbound.add(new Outbound(message, System.nanoTime()));
+                        enqueuedCount.increment();
+                        scheduleDrain();
+                        return;
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        outbound.add(new Outbound(message, System.nanoTime()));
+        enqueuedCount.increment();
+        scheduleDrain();
+    }
+
+    // 在后台线程发起下一条发送
+    private void scheduleDrain() {
+        if (!sending.get() && !outbound.isEmpty()) {
+            sendExecutor.execute(this::drain);
+        }
+    }
+
+    // 取出一条消息异步发送，发送完成的回调里再继续下一条
+    private void drain() {
+        if (closed.get() || !sending.compareAndSet(false, true)) {
+            return;
+        }
+        Outbound next = outbound.poll();
+        if (next == null) {
+            sending.set(false);
+            // 入队和释放发送标记之间可能有新消息进来
+            scheduleDrain();
+            return;
+        }
+        queued.decrementAndGet();
+        try {
+            session.getAsyncRemote().sendText(next.message(), result -> {
+                if (result.isOK()) {
+                    long latency = System.nanoTime() - next.enqueuedAt();
+                    sendLatencyNanos.add(latency);
+                    maxSendLatencyNanos.accumulateAndGet(latency, Math::max);
+                    sendTimer.record(latency, TimeUnit.NANOSECONDS);
+                    sentCount.increment();
+                    sending.set(false);
+                    scheduleDrain();
+                } else {
+                    failedCount.increment();
+                    evict("发送失败: " + result.getException());
+                }
+            });
+        } catch (Exception e) {
+            failedCount.increment();
+            evict("发送失败: " + e.getMessage());
+        }
+    }
+
+    // 移除并关闭连接，丢弃其积压的消息
+    private void evict(String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        webSocketSet.remove(this);
+        unsubscribe(new ArrayList<>(topics));
+        evictedCount.increment();
+        droppedCount.add(queued.getAndSet(0));
+        outbound.clear();
+        System.out.println("【WebSocket】连接被移除：" + reason + "，当前在线人数为" + webSocketSet.size());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "too slow"));
+        } catch (Exception e) {
+            // 连接可能已经断开
         }
     }
 
     /**
-     * 实现服务器主动推送
+     * 推送统计：在线连接数、队列积压、丢弃/失败/踢出次数、发送延迟
      */
-    public void sendMessage(String message) throws Exception {
-        this.session.getBasicRemote().sendText(message);
+    public static Map<String, Object> stats() {
+        long depth = 0;
+        int maxDepth = 0;
+        for (WebSocketServer item : webSocketSet) {
+            int q = item.queued.get();
+            depth += q;
+            maxDepth = Math.max(maxDepth, q);
+        }
+        long sent = sentCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", webSocketSet.size());
+        Map<String, Integer> subscribers = new LinkedHashMap<>();
+        topicSessions.forEach((topic, sessions) -> subscribers.put(topic, sessions.size()));
+        stats.put("topics", subscribers);
+        stats.put("queueDepth", depth);
+        stats.put("maxQueueDepth", maxDepth);
+        stats.put("enqueued", enqueuedCount.sum());
+        stats.put("sent", sent);
+        stats.put("dropped", droppedCount.sum());
+        stats.put("failed", failedCount.sum());
+        stats.put("evicted", evictedCount.sum());
+        stats.put("avgSendLatencyMs", sent == 0 ? 0 : sendLatencyNanos.sum() / sent / 1_000_000.0);
+        stats.put("maxSendLatencyMs", maxSendLatencyNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    // 所有连接的待发送消息总数
+    private static double queueDepth() {
+        long depth = 0;
+        for (WebSocketServer item : webSocketSet) {
+            depth += item.queued.get();
+        }
+        return depth;
+    }
+
+    // 待发送消息及入队时间
+    private record Outbound(String message, long enqueuedAt) {
     }
-}
\ No newline at end of file
+}
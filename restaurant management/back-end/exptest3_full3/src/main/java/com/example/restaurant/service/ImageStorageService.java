@@ -0,0 +1,38 @@
+package com.example.restaurant.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 图片存储服务
+ * 上传的图片按内容哈希命名 (相同图片只存一份，文件名永不变化)，并在后台生成缩略图、中图两个尺寸
+ */
+public interface ImageStorageService {
+
+    // 缩略图 (菜单列表、购物车)
+    String VARIANT_THUMB = "thumb";
+
+    // 中图 (菜品卡片、首页推荐)
+    String VARIANT_MEDIUM = "medium";
+
+    /**
+     * 保存上传的图片
+     * @return 访问地址，如 /images/{sha256}.jpg
+     */
+    String store(MultipartFile file) throws IOException;
+
+    /**
+     * 查询图片的尺寸变体地址；变体尚未生成时触发后台补生成，并返回空 Map
+     * @param imageUrl 原图地址
+     * @return thumb / medium -> 访问地址
+     */
+    Map<String, String> variantUrls(String imageUrl);
+
+    /**
+     * 图片存储目录
+     */
+    Path storageDir();
+}
@@ -0,0 +1,31 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.entity.Orders;
+
+import java.util.Map;
+
+/**
+ * 订单受理服务
+ * async 模式下订单先写入本地追加日志即返回，由后台线程按批提交数据库
+ */
+public interface OrderIntakeService {
+
+    // 已受理：写入本地日志，尚未落库
+    String STATE_ACCEPTED = "accepted";
+
+    // 已落库
+    String STATE_PERSISTED = "persisted";
+
+    // 是否启用异步受理 (restaurant.order.intake.mode = async)
+    boolean isAsync();
+
+    // 受理订单，返回生成的订单；日志写满或正在停机时降级为同步落库
+    Orders submit(OrderDTO orderDTO);
+
+    // 查询订单受理状态：accepted / persisted，订单不存在返回 null
+    String intakeState(String orderId);
+
+    // 受理队列统计：积压数量、最老订单等待时长、批次大小、提交耗时等
+    Map<String, Object> stats();
+}
@@ -1,13 +1,40 @@
 package com.example.restaurant.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.restaurant.common.CursorPage;
 import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.dto.OrderStatusBatchResult;
+import com.example.restaurant.dto.OrderStatusUpdate;
 import com.example.restaurant.entity.Orders;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface OrderService extends IService<Orders> {
-    // 定义下单接口
-    void createOrder(OrderDTO orderDTO);
+
+    // 订单列表的响应体缓存 Key 前缀；按状态过滤的列表为 order:list:status:{状态}
+    String LIST_BODY_KEY = "order:list";
+
+    // 批量改状态允许的流转：原状态 -> 可改为的状态 (管理端完成订单时写入的是 "已完成"；取消的订单可恢复为待处理)
+    Map<String, Set<String>> STATUS_TRANSITIONS = Map.of(
+            "pending", Set.of("cooking", "completed", "已完成", "cancelled"),
+            "cooking", Set.of("completed", "已完成", "cancelled"),
+            "cancelled", Set.of("pending"));
+
+    // 订单状态列的默认值；历史数据中状态为空的订单按该状态处理
+    String DEFAULT_STATUS = "pending";
+
+    // 单次批量改状态最多包含的订单数
+    int MAX_STATUS_BATCH = 200;
+
+    // 定义下单接口 (同步落库)，返回生成的订单
+    Orders createOrder(OrderDTO orderDTO);
+
+    // 校验并组装订单 (生成订单号、创建时间)，不落库
+    Orders buildOrder(OrderDTO orderDTO);
+
+    // 批量写入已组装好的订单及明细 (同一事务，多行 INSERT)，提交后更新缓存索引并推送
+    void saveOrders(List<Orders> orders);
 
     // 定义获取列表接口
     List<Orders> getAllOrders();
@@ -15,7 +42,21 @@ public interface OrderService extends IService<Orders> {
     // 👇 新增：定义更新状态接口
     void updateStatus(String id, String status);
 
+    // 批量改状态：校验流转后按 (原状态, 新状态) 分组更新，提交后统一刷新缓存并推送一条 ORDER_STATUS_BATCH 事件
+    OrderStatusBatchResult updateStatusBatch(List<OrderStatusUpdate> updates);
+
     // 🔥 新增：获取缓存后的订单列表
     List<Orders> getCachedOrderList();
 
-}
\ No newline at end of file
+    // 按状态获取缓存的订单列表 (走 Redis 状态索引)
+    List<Orders> getCachedOrdersByStatus(String status);
+
+    // 批量回填订单明细 (分块 IN 查询，避免逐单查询)
+    void fillOrderItems(List<Orders> orders);
+
+    // 游标分页查询 (按创建时间、订单号倒序，不执行 COUNT)
+    CursorPage<Orders> pageByCursor(String after, Integer size, String keyword);
+
+    // 片段搜索订单号 / 餐桌号 (走内存 N-gram 索引，预热完成前回退数据库)
+    List<Orders> search(String keyword, Integer limit);
+}
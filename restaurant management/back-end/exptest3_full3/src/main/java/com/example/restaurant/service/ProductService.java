@@ -1,14 +1,24 @@
 package com.example.restaurant.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.restaurant.common.CursorPage;
 import com.example.restaurant.entity.Product;
 import java.util.List;
 
 public interface ProductService extends IService<Product> {
 
+    // 全量菜品列表的响应体缓存 Key (与数据缓存 Key 相同，随数据一起失效)
+    String LIST_BODY_KEY = "product:list";
+
     // 1. 自定义一个带缓存的查询列表方法
     List<Product> getCachedProductList();
 
     // 2. 原有的推荐修改方法
     void updateRecommend(Long id, Boolean isRecommend);
-}
\ No newline at end of file
+
+    // 游标分页查询 (按 ID 倒序，不执行 COUNT)
+    CursorPage<Product> pageByCursor(String after, Integer size, String keyword);
+
+    // 回填图片缩略图 / 中图地址
+    void fillImageVariants(List<Product> products);
+}
@@ -1,10 +1,36 @@
 package com.example.restaurant.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.restaurant.common.CursorPage;
+import com.example.restaurant.dto.FreeTable;
 import com.example.restaurant.entity.Reservation;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 public interface ReservationService extends IService<Reservation> {
+
+    // 全量预约列表的响应体缓存 Key (与数据缓存 Key 相同，随数据一起失效)
+    String LIST_BODY_KEY = "reservation:list";
+
+    // 不再占用餐桌的状态 (管理端完成预约时写入的是 "已完成")
+    Set<String> RELEASED_STATUSES = Set.of("completed", "cancelled", "已完成");
+
     // 获取带缓存的预约列表
     List<Reservation> getCachedReservationList();
-}
\ No newline at end of file
+
+    // 游标分页查询 (按 ID 倒序，不执行 COUNT)
+    CursorPage<Reservation> pageByCursor(String after, Integer size, String keyword);
+
+    // 片段搜索姓名 / 手机号 / 餐桌号 (走内存 N-gram 索引，预热完成前回退数据库)
+    List<Reservation> search(String keyword, Integer limit);
+
+    // 指定时间起一个用餐时长内空闲、且能坐下 people 人的餐桌，按容量从小到大
+    List<FreeTable> findFreeTables(LocalDateTime time, int people);
+
+    // 预订餐桌：加分布式锁后查库确认时段无冲突再保存，冲突时抛 IllegalStateException，参数不合法抛 IllegalArgumentException
+    void book(Reservation reservation);
+
+    // 修改预约：开始占用餐桌 (取消后恢复、换桌、改时间) 时同样加锁查冲突，冲突时抛 IllegalStateException
+    boolean updateById(Reservation entity);
+}
@@ -0,0 +1,49 @@
+package com.example.restaurant.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.entity.SalesRollup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 销售汇总服务
+ * 下单、改状态时增量累加按菜品 / 分类 / 小时 / 天的订单数、销量、销售额，统计数据常驻内存，
+ * 定期把增量合并进 sales_rollup 表；看板接口直接读内存，耗时与历史订单数量无关
+ */
+public interface SalesRollupService extends IService<SalesRollup> {
+
+    String DIMENSION_PRODUCT = "product";
+    String DIMENSION_CATEGORY = "category";
+    String DIMENSION_HOUR = "hour";
+    String DIMENSION_DAY = "day";
+
+    // 已取消的订单不计入销售额
+    String STATUS_CANCELLED = "cancelled";
+
+    // 新订单落库 (事务提交后调用)，订单需带明细
+    void recordOrders(List<Orders> orders);
+
+    // 订单状态变化：取消时扣减，撤销取消时加回；订单需带明细和原状态下的金额
+    void recordStatusChange(Orders order, String oldStatus, String newStatus);
+
+    // 今日 / 昨日 / 近 7 天 / 累计的订单数和销售额
+    Map<String, Object> overview();
+
+    // 菜品排行，sort 为 quantity (按销量) 或 revenue (按销售额)
+    List<SalesRollup> topProducts(int limit, String sort);
+
+    // 各分类汇总，按销售额倒序
+    List<SalesRollup> categories();
+
+    // 某天 24 小时的分时汇总 (没有订单的小时补 0)
+    List<SalesRollup> hourly(LocalDate date);
+
+    // 日期区间 (含首尾) 内每天的汇总 (没有订单的日期补 0)
+    List<SalesRollup> daily(LocalDate from, LocalDate to);
+
+    // 从订单表全量重建汇总 (首次上线补历史 / 数据修复)，返回扫描的订单数
+    long rebuild();
+}
@@ -0,0 +1,274 @@
+package com.example.restaurant.service.impl;
+
+import com.example.restaurant.service.ImageStorageService;
+import com.example.restaurant.utils.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 内容寻址的图片存储
+ * 1. 上传流边写临时文件边计算 SHA-256，完成后原子改名为 {哈希}.{扩展名}；已存在则直接丢弃临时文件 (重复上传零成本)
+ * 2. 后台线程池把原图缩放为 {名称}_thumb.jpg、{名称}_medium.jpg 两个渐进式 JPEG 变体
+ * 3. 旧的 UUID 命名图片在首次被查询变体时补生成
+ */
+@Service
+public class ImageStorageServiceImpl implements ImageStorageService {
+
+    private static final String URL_PREFIX = "/images/";
+    // 原图文件名：字母数字横线 + 扩展名 (变体和临时文件不匹配)
+    private static final Pattern ORIGINAL_NAME = Pattern.compile("[0-9a-zA-Z-]+\\.[0-9a-zA-Z]{1,5}");
+    private static final Pattern SUFFIX = Pattern.compile("\\.[0-9a-z]{1,5}");
+
+    @Value("${restaurant.image.dir:${user.dir}/src/main/resources/static/images/}")
+    private String dir;
+
+    @Value("${restaurant.image.thumb-size:240}")
+    private int thumbSize;
+
+    @Value("${restaurant.image.medium-size:720}")
+    private int mediumSize;
+
+    @Value("${restaurant.image.quality:0.8}")
+    private float quality;
+
+    @Value("${restaurant.image.variant-threads:2}")
+    private int variantThreads;
+
+    private Path storageDir;
+    private ThreadPoolExecutor variantPool;
+
+    // 变体已生成的原图文件名 (避免每次查询都访问磁盘)
+    private final Set<String> ready = ConcurrentHashMap.newKeySet();
+    // 正在生成变体的原图文件名 (避免重复提交)
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // 无法解码的文件 (非图片)，不再重试
+    private final Set<String> unsupported = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() throws IOException {
+        storageDir = Paths.get(dir).toAbsolutePath().normalize();
+        Files.createDirectories(storageDir);
+
+        // 队列满时直接丢弃，下次查询变体时会再次补生成
+        // 缩放是 CPU 密集任务，虚拟线程模式下也保持固定数量的平台线程
+        variantPool = new ThreadPoolExecutor(variantThreads, variantThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256), ThreadFactories.named("image-variant-", false),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        variantPool.shutdownNow();
+    }
+
+    @Override
+    public Path storageDir() {
+        return storageDir;
+    }
+
+    @Override
+    public String store(MultipartFile file) throws IOException {
+        String suffix = suffixOf(file.getOriginalFilename());
+        Path temp = storageDir.resolve(".upload-" + UUID.randomUUID() + ".tmp");
+
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String name = HexFormat.of().formatHex(digest.digest()) + suffix;
+        Path target = storageDir.resolve(name);
+        try {
+            // 同一张图片已经存在时直接丢弃临时文件
+            if (!Files.exists(target)) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        scheduleVariants(name);
+        return URL_PREFIX + name;
+    }
+
+    @Override
+    public Map<String, String> variantUrls(String imageUrl) {
+        String name = originalName(imageUrl);
+        if (name == null || unsupported.contains(name)) {
+            return Collections.emptyMap();
+        }
+        if (!ready.contains(name)) {
+            if (!Files.exists(variantPath(name, VARIANT_THUMB)) || !Files.exists(variantPath(name, VARIANT_MEDIUM))) {
+                scheduleVariants(name);
+                return Collections.emptyMap();
+            }
+            ready.add(name);
+        }
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        urls.put(VARIANT_THUMB, URL_PREFIX + variantName(name, VARIANT_THUMB));
+        urls.put(VARIANT_MEDIUM, URL_PREFIX + variantName(name, VARIANT_MEDIUM));
+        return urls;
+    }
+
+    /**
+     * 提交后台任务生成变体 (同一张图同时只提交一次)
+     */
+    private void scheduleVariants(String name) {
+        if (ready.contains(name) || !Files.exists(storageDir.resolve(name)) || !inFlight.add(name)) {
+            return;
+        }
+        try {
+            variantPool.execute(() -> {
+                try {
+                    generateVariants(name);
+                } catch (Exception e) {
+                    System.err.println("图片变体生成失败: " + name + ", " + e.getMessage());
+                } finally {
+                    inFlight.remove(name);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(name);
+        }
+    }
+
+    private void generateVariants(String name) throws IOException {
+        BufferedImage source = ImageIO.read(storageDir.resolve(name).toFile());
+        if (source == null) {
+            unsupported.add(name);
+            return;
+        }
+        writeJpeg(resize(source, thumbSize), variantPath(name, VARIANT_THUMB));
+        writeJpeg(resize(source, mediumSize), variantPath(name, VARIANT_MEDIUM));
+        ready.add(name);
+    }
+
+    /**
+     * 等比缩放到最长边不超过 maxSize (小图不放大)
+     * 先逐次减半再做最后一次双线性插值，兼顾速度和画质；透明背景填充为白色
+     */
+    private BufferedImage resize(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, currentWidth, currentHeight);
+            g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            g.dispose();
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    /**
+     * 写入渐进式 JPEG：先写临时文件再原子改名，读者不会看到写了一半的文件
+     */
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+        Path temp = storageDir.resolve(".variant-" + UUID.randomUUID() + ".tmp");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 从访问地址中取出原图文件名；不是本地存储的原图 (外链、变体) 返回 null
+     */
+    private String originalName(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        String name = imageUrl.substring(URL_PREFIX.length());
+        return ORIGINAL_NAME.matcher(name).matches() ? name : null;
+    }
+
+    private Path variantPath(String name, String variant) {
+        return storageDir.resolve(variantName(name, variant));
+    }
+
+    private static String variantName(String name, String variant) {
+        return name.substring(0, name.lastIndexOf('.')) + "_" + variant + ".jpg";
+    }
+
+    private static String suffixOf(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return ".jpg";
+        }
+        String suffix = filename.substring(filename.lastIndexOf('.')).toLowerCase();
+        if (".jpeg".equals(suffix)) {
+            return ".jpg";
+        }
+        return SUFFIX.matcher(suffix).matches() ? suffix : ".jpg";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.restaurant.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.service.OrderIntakeService;
+import com.example.restaurant.service.OrderService;
+import com.example.restaurant.utils.AppendLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 写后落库的订单受理实现
+ * 1. submit：校验、生成订单号，追加到内存映射日志后立即返回 (状态 accepted)
+ * 2. 后台单线程按批 (batch-size 条或等待 linger-ms) 在一个事务里多行 INSERT，提交后推进检查点 (状态 persisted)
+ * 3. 启动时从检查点重放日志，已在数据库中的订单跳过，保证崩溃后不丢、不重
+ * 4. 数据本身有问题 (约束冲突等，重试没用) 的批次二分拆开提交，定位到的坏订单写入死信文件后跳过，检查点照常推进
+ */
+@Service
+public class OrderIntakeServiceImpl implements OrderIntakeService {
+
+    @Autowired
+    private OrderService orderService;
+
+    // 无法落库的订单，与日志放在同一目录
+    private static final String DEAD_LETTER_FILE = "orders.dead";
+
+    @Value("${restaurant.order.intake.mode:sync}")
+    private String mode;
+
+    @Value("${restaurant.order.intake.log-dir:./data/order-intake}")
+    private String logDir;
+
+    @Value("${restaurant.order.intake.log-size-mb:64}")
+    private int logSizeMb;
+
+    @Value("${restaurant.order.intake.batch-size:100}")
+    private int batchSize;
+
+    @Value("${restaurant.order.intake.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${restaurant.order.intake.force-on-append:false}")
+    private boolean forceOnAppend;
+
+    private AppendLog intakeLog;
+    private Thread writer;
+    private volatile boolean running;
+
+    // 追加日志与入队在同一把锁内完成，保证队列顺序与日志顺序一致，检查点才能按序推进
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // 已受理未落库的订单号 -> 受理时间
+    private final Map<String, Long> accepted = new ConcurrentHashMap<>();
+
+    private final LongAdder acceptedTotal = new LongAdder();
+    private final LongAdder persistedTotal = new LongAdder();
+    private final LongAdder batchTotal = new LongAdder();
+    private final LongAdder fallbackTotal = new LongAdder();
+    private final LongAdder failedBatchTotal = new LongAdder();
+    private final LongAdder deadLetterTotal = new LongAdder();
+    private final AtomicLong replayedTotal = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastCommitMillis = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isAsync()) {
+            return;
+        }
+        // 日志整体映射进内存，偏移量是 int，单个文件不能超过 2GB
+        long logBytes = logSizeMb * 1024L * 1024L;
+        if (logSizeMb <= 0 || logBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("restaurant.order.intake.log-size-mb 须在 1~2047 之间: " + logSizeMb);
+        }
+        intakeLog = new AppendLog(Paths.get(logDir), "orders", (int) logBytes, forceOnAppend);
+        replay();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public boolean isAsync() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    @Override
+    public Orders submit(OrderDTO orderDTO) {
+        Orders order = orderService.buildOrder(orderDTO);
+        if (!isAsync()) {
+            orderService.saveOrders(List.of(order));
+            return order;
+        }
+
+        byte[] data = JSON.toJSONBytes(order);
+        appendLock.lock();
+        try {
+            if (running) {
+                int endOffset = intakeLog.append(data);
+                if (endOffset >= 0) {
+                    long now = System.currentTimeMillis();
+                    accepted.put(order.getId(), now);
+                    queue.add(new Pending(order, endOffset, now));
+                    acceptedTotal.increment();
+                    return order;
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+
+        // 日志已满 (积压过多) 或正在停机：降级为同步落库
+        fallbackTotal.increment();
+        orderService.saveOrders(List.of(order));
+        return order;
+    }
+
+    @Override
+    public String intakeState(String orderId) {
+        if (accepted.containsKey(orderId)) {
+            return STATE_ACCEPTED;
+        }
+        return orderService.getById(orderId) != null ? STATE_PERSISTED : null;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", isAsync() ? "async" : "sync");
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (Long acceptedAt : accepted.values()) {
+            oldest = Math.min(oldest, acceptedAt);
+        }
+        stats.put("pending", accepted.size());
+        stats.put("oldestPendingMillis", now - oldest);
+        stats.put("lastLagMillis", lastLagMillis.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        stats.put("accepted", acceptedTotal.sum());
+        stats.put("persisted", persistedTotal.sum());
+        stats.put("batches", batchTotal.sum());
+        stats.put("lastBatchSize", lastBatchSize.get());
+        stats.put("lastCommitMillis", lastCommitMillis.get());
+        stats.put("failedBatches", failedBatchTotal.sum());
+        stats.put("deadLetters", deadLetterTotal.sum());
+        stats.put("fallbacks", fallbackTotal.sum());
+        stats.put("replayed", replayedTotal.get());
+        if (intakeLog != null) {
+            stats.put("logUsedBytes", intakeLog.writePosition() - intakeLog.checkpointOffset());
+            stats.put("logCapacityBytes", intakeLog.capacity());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            running = false;
+        } finally {
+            appendLock.unlock();
+        }
+        // 等待写线程把已受理的订单提交完；超时未提交的留在日志里，下次启动重放
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        intakeLog.close();
+    }
+
+    /**
+     * 启动时重放检查点之后的日志记录
+     */
+    private void replay() {
+        List<AppendLog.Entry> entries = intakeLog.readFrom(intakeLog.checkpointOffset());
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Orders> orders = new ArrayList<>(entries.size());
+        List<String> ids = new ArrayList<>(entries.size());
+        for (AppendLog.Entry entry : entries) {
+            Orders order = JSON.parseObject(entry.data(), Orders.class);
+            orders.add(order);
+            ids.add(order.getId());
+        }
+        Set<String> persisted = existingIds(ids);
+
+        long now = System.currentTimeMillis();
+        List<Pending> pending = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Orders order = orders.get(i);
+            if (!persisted.contains(order.getId())) {
+                pending.add(new Pending(order, entries.get(i).endOffset(), now));
+                accepted.put(order.getId(), now);
+            }
+        }
+
+        int lastEnd = entries.get(entries.size() - 1).endOffset();
+        if (pending.isEmpty()) {
+            // 崩溃前已落库但未来得及推进检查点
+            intakeLog.checkpoint(lastEnd);
+            return;
+        }
+        // 末尾已落库的记录随最后一条待提交订单一起越过
+        Pending last = pending.remove(pending.size() - 1);
+        pending.add(new Pending(last.order(), lastEnd, last.acceptedAt()));
+        queue.addAll(pending);
+        replayedTotal.set(pending.size());
+        System.out.println("订单受理日志重放 " + pending.size() + " 条");
+    }
+
+    /**
+     * 写线程：攒批提交，直到停机且队列清空
+     */
+    private void writeLoop() {
+        int maxBatch = Math.max(1, batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending> batch = new ArrayList<>();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (!commit(batch)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 提交一批订单，全部落库 (或写入死信) 后推进检查点
+     * @return false 表示停机前仍未提交成功，留给下次启动重放
+     */
+    private boolean commit(List<Pending> batch) throws InterruptedException {
+        List<Orders> orders = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            orders.add(pending.order());
+        }
+        long deadBefore = deadLetterTotal.sum();
+        if (!persist(orders)) {
+            return false;
+        }
+
+        intakeLog.checkpoint(batch.get(batch.size() - 1).endOffset());
+
+        long now = System.currentTimeMillis();
+        for (Pending pending : batch) {
+            accepted.remove(pending.order().getId());
+        }
+        long lag = now - batch.get(0).acceptedAt();
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+        lastBatchSize.set(batch.size());
+        batchTotal.increment();
+        persistedTotal.add(batch.size() - (deadLetterTotal.sum() - deadBefore));
+        return true;
+    }
+
+    /**
+     * 在一个事务里落库一组订单
+     * 重放的订单已落库导致的主键冲突：剔除已落库的后重试；
+     * 其他约束冲突 (数据本身有问题，重试没用)：二分拆开分别提交，单条仍失败时写入死信；
+     * 其他错误 (数据库不可用等)：按指数退避重试
+     * @param orders 待落库的订单 (可修改的列表)
+     * @return false 表示停机前仍未提交成功
+     */
+    private boolean persist(List<Orders> orders) throws InterruptedException {
+        long backoff = 100;
+        while (!orders.isEmpty()) {
+            long start = System.currentTimeMillis();
+            try {
+                orderService.saveOrders(orders);
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                if (e instanceof DuplicateKeyException) {
+                    Set<String> persisted = existingIds(orders.stream().map(Orders::getId).toList());
+                    if (orders.removeIf(order -> persisted.contains(order.getId()))) {
+                        continue;
+                    }
+                }
+                if (orders.size() == 1) {
+                    deadLetter(orders.get(0), e);
+                    return true;
+                }
+                int middle = orders.size() / 2;
+                return persist(new ArrayList<>(orders.subList(0, middle)))
+                        && persist(new ArrayList<>(orders.subList(middle, orders.size())));
+            } catch (Exception e) {
+                failedBatchTotal.increment();
+                System.err.println("订单批量落库失败，" + backoff + "ms 后重试: " + e.getMessage());
+                if (!running) {
+                    return false;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 5000);
+            } finally {
+                lastCommitMillis.set(System.currentTimeMillis() - start);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 无法落库的订单追加到死信文件 (每行一条 JSON)，供人工核对后补录
+     */
+    private void deadLetter(Orders order, Exception cause) {
+        deadLetterTotal.increment();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("time", System.currentTimeMillis());
+        record.put("error", cause.getMessage());
+        record.put("order", order);
+        try {
+            Files.write(Paths.get(logDir, DEAD_LETTER_FILE),
+                    (JSON.toJSONString(record) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("订单死信写入失败: " + JSON.toJSONString(order) + ", " + e.getMessage());
+        }
+        System.err.println("订单无法落库，已写入死信: " + order.getId() + ", " + cause.getMessage());
+    }
+
+    private Set<String> existingIds(List<String> ids) {
+        Set<String> existing = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        for (Orders order : orderService.listByIds(ids)) {
+            existing.add(order.getId());
+        }
+        return existing;
+    }
+
+    /**
+     * 已受理待提交的订单
+     * @param order 订单 (含明细)
+     * @param endOffset 日志中的结束位置
+     * @param acceptedAt 受理时间
+     */
+    private record Pending(Orders order, int endOffset, long acceptedAt) {
+    }
+}
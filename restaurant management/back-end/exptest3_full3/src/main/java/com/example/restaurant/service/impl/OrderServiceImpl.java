@@ -3,22 +3,61 @@ package com.example.restaurant.service.impl;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.restaurant.common.CursorPage;
 import com.example.restaurant.dto.OrderDTO;
+import com.example.restaurant.dto.OrderStatusBatchResult;
+import com.example.restaurant.dto.OrderStatusChange;
+import com.example.restaurant.dto.OrderStatusUpdate;
 import com.example.restaurant.entity.OrderItem;
 import com.example.restaurant.entity.Orders;
 import com.example.restaurant.mapper.OrderItemMapper;
 import com.example.restaurant.mapper.OrdersMapper;
 import com.example.restaurant.service.OrderService;
+import com.example.restaurant.service.SalesRollupService;
+import com.example.restaurant.utils.CacheMetrics;
+import com.example.restaurant.utils.CursorUtils;
+import com.example.restaurant.utils.NgramIndex;
+import com.example.restaurant.utils.OrderIdGenerator;
 import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
+import com.example.restaurant.utils.SingleFlightCache;
 import com.example.restaurant.server.WebSocketServer; // 👈 引入 WebSocket
+import com.example.restaurant.utils.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class OrderServiceImpl extends ServiceImpl<OrdersMapper, Orders> implements OrderService {
@@ -29,88 +68,864 @@ public class OrderServiceImpl extends ServiceImpl<OrdersMapper, Orders> implemen
     @Autowired
     private RedisUtils redisUtils;
 
-    private static final String CACHE_KEY = "order:list";
+    @Autowired
+    private SingleFlightCache singleFlightCache;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private OrderIdGenerator orderIdGenerator;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    // 批量加载订单明细时，每条 IN 查询最多携带的订单号数量
+    @Value("${restaurant.order.item-batch-size:500}")
+    private int itemBatchSize;
+
+    // 批量写入订单明细时，每条多行 INSERT 最多包含的行数
+    @Value("${restaurant.order.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    private static final String COUNT_CACHE_KEY = "order:count";
+
+    // 与表结构一致：orders.table_id varchar(20)，order_items.product_name varchar(100)，金额 decimal(10, 2)
+    private static final int MAX_TABLE_ID_LENGTH = 20;
+    private static final int MAX_PRODUCT_NAME_LENGTH = 100;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+
+    // 结构化订单缓存：每个订单一个 Hash 字段，另按创建时间、状态各维护一个有序集合索引
+    private static final String ENTRY_KEY = "order:entry";
+    private static final String TIME_INDEX_KEY = "order:index:time";
+    private static final String STATUS_INDEX_PREFIX = "order:index:status:";
+    private static final String STATUS_SET_KEY = "order:index:statuses";
+    // 全量重建完成的标记，缺失时 (首次启动 / Redis 被清空) 才回源数据库
+    private static final String INDEX_READY_KEY = "order:index:ready";
+    // 每个订单的状态索引版本号，改状态同步索引时 WATCH 它判断期间是否有别的请求同步过
+    private static final String INDEX_VERSION_PREFIX = "order:index:version:";
+    // 版本号只在并发改同一订单的短时间内有用，过期后自动清理
+    private static final long INDEX_VERSION_TTL_SECONDS = 3600;
+    private static final int INDEX_SYNC_ATTEMPTS = 5;
+    // 单个订单改状态时，条件更新因原状态不符失败后重新查库再试的次数
+    private static final int STATUS_UPDATE_ATTEMPTS = 3;
+
+    // 搜索索引广播中的类型标识
+    private static final String SEARCH_KIND = "order";
+
+    @Value("${restaurant.search.gram-size:3}")
+    private int gramSize;
+
+    // 订单号 / 餐桌号的 N-gram 索引，只保存不含明细的订单，结果按创建时间倒序
+    private NgramIndex<String, Orders> searchIndex;
+
+    // 收到索引广播后回源查库的线程：监听线程只有一个，不能在上面查库；单线程执行保证同一订单按广播顺序刷新
+    private ExecutorService indexReloadExecutor;
+
+    @PostConstruct
+    public void init() {
+        searchIndex = new NgramIndex<>(gramSize,
+                o -> new String[]{o.getId(), o.getTableId()},
+                Comparator.comparing(Orders::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(Orders::getId, Comparator.reverseOrder()));
+        indexReloadExecutor = Executors.newSingleThreadExecutor(ThreadFactories.named("order-index-reload-", false));
+        // 其他节点下单 / 改状态后广播订单号，这里回源刷新本节点索引
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length == 3 && SEARCH_KIND.equals(parts[1]) && !RedisUtils.INSTANCE_ID.equals(parts[0])) {
+                List<String> ids = Arrays.asList(parts[2].split(","));
+                indexReloadExecutor.execute(() -> reloadIndexEntries(ids));
+            }
+        }, new ChannelTopic(RedisUtils.SEARCH_INDEX_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexReloadExecutor.shutdownNow();
+    }
+
+    /**
+     * 按订单号回源刷新搜索索引条目 (已删除则移出索引)
+     */
+    private void reloadIndexEntries(List<String> ids) {
+        try {
+            Map<String, Orders> found = new HashMap<>();
+            for (Orders order : this.listByIds(ids)) {
+                found.put(order.getId(), order);
+            }
+            for (String id : ids) {
+                Orders order = found.get(id);
+                if (order == null) {
+                    searchIndex.remove(id);
+                } else {
+                    searchIndex.put(id, order);
+                }
+            }
+        } catch (Exception e) {
+            // 漏掉的由定期全量重建兜底
+            System.err.println("订单索引刷新失败: " + e.getMessage());
+        }
+    }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public void createOrder(OrderDTO dto) {
-        // 1. 生成订单号
-        String orderId = UUID.randomUUID().toString().replace("-", "");
+    public Orders createOrder(OrderDTO dto) {
+        Orders order = buildOrder(dto);
+        saveOrders(Collections.singletonList(order));
+        return order;
+    }
+
+    @Override
+    public Orders buildOrder(OrderDTO dto) {
+        if (dto.getItems() == null || dto.getItems().isEmpty()) {
+            throw new IllegalArgumentException("订单中没有菜品");
+        }
+        // 异步受理模式下订单先写日志、稍后才落库，这里须把数据库约束都校验到，否则落库失败时客户端早已收到受理成功
+        checkAmount(dto.getTotalAmount(), "订单总金额");
+        if (dto.getTableId() != null && dto.getTableId().length() > MAX_TABLE_ID_LENGTH) {
+            throw new IllegalArgumentException("桌号不能超过 " + MAX_TABLE_ID_LENGTH + " 个字符");
+        }
 
-        // 2. 写入主表
+        // 1. 生成订单号 (默认按时间递增，顺序写入主键索引)
+        String orderId = orderIdGenerator.nextId();
+
+        // 2. 组装主表
         Orders order = new Orders();
         order.setId(orderId);
         order.setTableId(dto.getTableId());
         order.setTotalAmount(dto.getTotalAmount());
         order.setStatus("pending");
         order.setCreateTime(LocalDateTime.now());
-        this.baseMapper.insert(order);
 
-        // 3. 写入子表
-        if (dto.getItems() != null) {
-            for (OrderDTO.OrderItemDTO itemDTO : dto.getItems()) {
-                OrderItem item = new OrderItem();
-                item.setOrderId(orderId);
-                item.setProductId(itemDTO.getId());
-                item.setProductName(itemDTO.getName());
-                item.setPrice(itemDTO.getPrice());
-                item.setQuantity(itemDTO.getQuantity());
-                orderItemMapper.insert(item);
+        // 3. 组装子表
+        List<OrderItem> items = new ArrayList<>();
+        for (OrderDTO.OrderItemDTO itemDTO : dto.getItems()) {
+            if (itemDTO.getQuantity() == null || itemDTO.getQuantity() <= 0) {
+                throw new IllegalArgumentException("菜品数量必须大于 0");
+            }
+            if (itemDTO.getId() == null) {
+                throw new IllegalArgumentException("菜品 ID 不能为空");
+            }
+            if (itemDTO.getName() == null || itemDTO.getName().isEmpty()
+                    || itemDTO.getName().length() > MAX_PRODUCT_NAME_LENGTH) {
+                throw new IllegalArgumentException("菜品名称不能为空且不能超过 " + MAX_PRODUCT_NAME_LENGTH + " 个字符");
             }
+            checkAmount(itemDTO.getPrice(), "菜品单价");
+            OrderItem item = new OrderItem();
+            item.setOrderId(orderId);
+            item.setProductId(itemDTO.getId());
+            item.setProductName(itemDTO.getName());
+            item.setPrice(itemDTO.getPrice());
+            item.setQuantity(itemDTO.getQuantity());
+            items.add(item);
         }
+        order.setOrderItems(items);
+        return order;
+    }
 
-        // 4. 清除 Redis 缓存
-        redisUtils.delete(CACHE_KEY);
+    // 金额须非空、非负，且放得进 decimal(10, 2)
+    private static void checkAmount(BigDecimal amount, String name) {
+        if (amount == null) {
+            throw new IllegalArgumentException(name + "不能为空");
+        }
+        if (amount.signum() < 0 || amount.setScale(2, RoundingMode.HALF_UP).compareTo(MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException(name + "须在 0~" + MAX_AMOUNT.toPlainString() + " 之间");
+        }
+    }
 
-        // 5. 🔥 WebSocket 推送：通知管理员有新订单
-        try {
-            WebSocketServer.sendInfo("NEW_ORDER");
-        } catch (Exception e) {
-            System.err.println("WebSocket 推送失败: " + e.getMessage());
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveOrders(List<Orders> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        // 1. 主表、子表各按 insertBatchSize 分批多行 INSERT
+        int batchSize = Math.max(1, insertBatchSize);
+        for (int from = 0; from < orders.size(); from += batchSize) {
+            this.baseMapper.insertBatch(orders.subList(from, Math.min(from + batchSize, orders.size())));
+        }
+        List<OrderItem> items = new ArrayList<>();
+        for (Orders order : orders) {
+            if (order.getOrderItems() != null) {
+                items.addAll(order.getOrderItems());
+            }
         }
+        insertItems(items);
+
+        // 2. 事务提交后增量写入 Redis 订单索引，不再整体删除重建
+        // 3. 🔥 WebSocket 推送：新订单连同明细一起推给管理员，前端无需再拉全量列表
+        afterCommit(() -> {
+            redisUtils.pipeline(ops -> {
+                for (Orders order : orders) {
+                    writeIndexEntry(ops, order, Collections.emptySet());
+                }
+            });
+            List<String> ids = new ArrayList<>(orders.size());
+            for (Orders order : orders) {
+                searchIndex.put(order.getId(), withoutItems(order));
+                ids.add(order.getId());
+            }
+            publishSearchChange(ids);
+            evictListBody();
+            try {
+                salesRollupService.recordOrders(orders);
+            } catch (Exception e) {
+                System.err.println("销售汇总更新失败: " + e.getMessage());
+            }
+            for (Orders order : orders) {
+                try {
+                    WebSocketServer.sendEvent("NEW_ORDER", order, orderTopics(order.getTableId()));
+                } catch (Exception e) {
+                    System.err.println("WebSocket 推送失败: " + e.getMessage());
+                }
+            }
+        });
     }
 
+    /**
+     * 从 Redis 订单索引组装全量列表 (按创建时间倒序)
+     * 索引由下单、改状态增量维护，只有索引缺失时才回源数据库重建；
+     * 命中 / 未命中和重建耗时记在 order:list 族的 redis 层级下，与响应体缓存的指标对应
+     */
     @Override
     public List<Orders> getCachedOrderList() {
-        String json = redisUtils.get(CACHE_KEY);
-        if (json != null && !json.isEmpty()) {
-            return JSON.parseArray(json, Orders.class);
+        List<Orders> list = readIndexedOrders(TIME_INDEX_KEY);
+        if (list != null) {
+            cacheMetrics.hit(LIST_BODY_KEY, CacheMetrics.TIER_REDIS);
+            return list;
         }
+        cacheMetrics.miss(LIST_BODY_KEY, CacheMetrics.TIER_REDIS);
+        return rebuildOrderIndexOnce();
+    }
 
-        List<Orders> list = this.getAllOrders();
-        if (list != null && !list.isEmpty()) {
-            redisUtils.set(CACHE_KEY, JSON.toJSONString(list), 600);
+    /**
+     * 按状态从 Redis 订单索引读取订单 (按创建时间倒序)
+     */
+    @Override
+    public List<Orders> getCachedOrdersByStatus(String status) {
+        List<Orders> list = readIndexedOrders(STATUS_INDEX_PREFIX + status);
+        if (list != null) {
+            cacheMetrics.hit(LIST_BODY_KEY, CacheMetrics.TIER_REDIS);
+            return list;
+        }
+        cacheMetrics.miss(LIST_BODY_KEY, CacheMetrics.TIER_REDIS);
+        List<Orders> result = new ArrayList<>();
+        for (Orders order : rebuildOrderIndexOnce()) {
+            if (status.equals(order.getStatus())) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入订单明细：按 insertBatchSize 分批，每批一条多行 INSERT
+     */
+    private void insertItems(List<OrderItem> items) {
+        int batchSize = Math.max(1, insertBatchSize);
+        for (int from = 0; from < items.size(); from += batchSize) {
+            orderItemMapper.insertBatch(items.subList(from, Math.min(from + batchSize, items.size())));
         }
-        return list;
     }
 
     @Override
     public List<Orders> getAllOrders() {
         List<Orders> ordersList = this.list();
-        if (ordersList != null) {
-            for (Orders order : ordersList) {
-                LambdaQueryWrapper<OrderItem> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(OrderItem::getOrderId, order.getId());
-                order.setOrderItems(orderItemMapper.selectList(queryWrapper));
+        fillOrderItems(ordersList);
+        return ordersList;
+    }
+
+    /**
+     * 批量加载订单明细
+     * 按 itemBatchSize 把订单号分块，每块一条 IN 查询，再在内存中按 orderId 回填，避免 N+1 查询
+     */
+    @Override
+    public void fillOrderItems(List<Orders> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<OrderItem>> itemsByOrderId = new HashMap<>();
+        List<String> orderIds = new ArrayList<>(orders.size());
+        for (Orders order : orders) {
+            orderIds.add(order.getId());
+            itemsByOrderId.put(order.getId(), new ArrayList<>());
+        }
+
+        int batchSize = Math.max(1, itemBatchSize);
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            List<String> chunk = orderIds.subList(from, Math.min(from + batchSize, orderIds.size()));
+            LambdaQueryWrapper<OrderItem> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.in(OrderItem::getOrderId, chunk);
+            for (OrderItem item : orderItemMapper.selectList(queryWrapper)) {
+                List<OrderItem> items = itemsByOrderId.get(item.getOrderId());
+                if (items != null) {
+                    items.add(item);
+                }
             }
         }
-        return ordersList;
+
+        for (Orders order : orders) {
+            order.setOrderItems(itemsByOrderId.get(order.getId()));
+        }
+    }
+
+    @Override
+    public CursorPage<Orders> pageByCursor(String after, Integer size, String keyword) {
+        int pageSize = CursorUtils.normalizeSize(size);
+        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+
+        if (keyword != null && !keyword.isEmpty()) {
+            queryWrapper.and(w -> w.eq(Orders::getId, keyword)
+                    .or()
+                    .like(Orders::getTotalAmount, keyword));
+        }
+
+        // 从游标位置往后 seek：create_time < t OR (create_time = t AND id < id)
+        String[] cursor = CursorUtils.decode(after);
+        if (cursor != null) {
+            LocalDateTime createTime = CursorUtils.parseTime(cursor[0]);
+            String id = cursor[1];
+            queryWrapper.and(w -> w.lt(Orders::getCreateTime, createTime)
+                    .or(x -> x.eq(Orders::getCreateTime, createTime).lt(Orders::getId, id)));
+        }
+        queryWrapper.orderByDesc(Orders::getCreateTime).orderByDesc(Orders::getId);
+
+        // 带关键词时不返回总数
+        Long total = keyword == null || keyword.isEmpty()
+                ? CursorUtils.approximateCount(redisUtils, COUNT_CACHE_KEY, this) : null;
+        CursorPage<Orders> page = CursorUtils.fetchPage(this, queryWrapper, pageSize,
+                o -> CursorUtils.encode(o.getCreateTime(), o.getId()), total);
+        fillOrderItems(page.getRecords());
+        return page;
     }
 
     @Override
     public void updateStatus(String id, String status) {
-        this.update(new LambdaUpdateWrapper<Orders>()
-                .eq(Orders::getId, id)
-                .set(Orders::getStatus, status));
+        // 先取改状态前的订单 (Redis 条目缺失时查库)，才能拿到原状态
+        Orders order = null;
+        String json = redisUtils.hGet(ENTRY_KEY, id);
+        if (json != null) {
+            order = JSON.parseObject(json, Orders.class);
+        } else {
+            order = this.getById(id);
+            if (order != null) {
+                fillOrderItems(Collections.singletonList(order));
+            }
+        }
+
+        // 带原状态条件更新：只有恰好改了一行，原状态才确实是这次改掉的，销售汇总才能据此增减；
+        // 改了 0 行说明缓存里的状态已过期或有并发修改，查库取最新状态再试
+        String oldStatus = null;
+        boolean changed = false;
+        for (int attempt = 1; order != null && attempt <= STATUS_UPDATE_ATTEMPTS; attempt++) {
+            oldStatus = order.getStatus();
+            LambdaUpdateWrapper<Orders> updateWrapper = new LambdaUpdateWrapper<Orders>()
+                    .set(Orders::getStatus, status)
+                    .eq(Orders::getId, id);
+            if (oldStatus == null) {
+                updateWrapper.isNull(Orders::getStatus);
+            } else {
+                updateWrapper.eq(Orders::getStatus, oldStatus);
+            }
+            if (this.baseMapper.update(null, updateWrapper) == 1) {
+                changed = true;
+                break;
+            }
+            Orders latest = this.getById(id);
+            if (latest == null) {
+                order = null;
+            } else {
+                order.setStatus(latest.getStatus());
+            }
+        }
+        if (order != null && !changed) {
+            throw new IllegalStateException("订单状态正被其他操作修改，请稍后重试");
+        }
 
-        // 删除缓存
-        redisUtils.delete(CACHE_KEY);
+        // 只更新 Redis 中这一个订单的条目和状态索引
+        String tableId = order == null ? null : order.getTableId();
+        if (order != null) {
+            // 取消 / 撤销取消时调整销售汇总 (改状态前的订单金额和明细)
+            try {
+                salesRollupService.recordStatusChange(order, oldStatus, status);
+            } catch (Exception e) {
+                System.err.println("销售汇总更新失败: " + e.getMessage());
+            }
+            order.setStatus(status);
+            syncStatusIndex(Collections.singletonList(order));
+            searchIndex.put(id, withoutItems(order));
+            publishSearchChange(Collections.singletonList(id));
+        }
+        evictListBody();
 
-        // 🔥 WebSocket 推送：通知所有客户端订单状态已变更
+        // 🔥 WebSocket 推送：只推送状态变化 (订单号 + 新旧状态)
         try {
-            WebSocketServer.sendInfo("ORDER_UPDATE");
+            WebSocketServer.sendEvent("ORDER_UPDATE", new OrderStatusChange(id, oldStatus, status), orderTopics(tableId));
         } catch (Exception e) {
             // 忽略推送错误
         }
     }
+
+    /**
+     * 批量改状态 (后厨一次推进一批订单)
+     * 先 SELECT ... FOR UPDATE 锁住这批订单并读出改前的状态、校验流转，再按 (原状态, 新状态) 分组，每组一条 UPDATE ... WHERE id IN (...)；
+     * 行锁持有到事务提交，其他请求改不动这些订单，每组更新的行数一定等于订单数；
+     * 提交后一次管道写入 Redis 索引、清一次列表缓存、推送一条 ORDER_STATUS_BATCH 事件 (各餐桌另收本桌的部分)
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public OrderStatusBatchResult updateStatusBatch(List<OrderStatusUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            throw new IllegalArgumentException("请选择要修改的订单");
+        }
+        if (updates.size() > MAX_STATUS_BATCH) {
+            throw new IllegalArgumentException("单次最多修改 " + MAX_STATUS_BATCH + " 个订单");
+        }
+        // 同一订单出现多次时以最后一项为准
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (OrderStatusUpdate update : updates) {
+            if (update.getId() == null || update.getId().isEmpty()
+                    || update.getStatus() == null || update.getStatus().isEmpty()) {
+                throw new IllegalArgumentException("订单号和状态不能为空");
+            }
+            targets.remove(update.getId());
+            targets.put(update.getId(), update.getStatus());
+        }
+
+        OrderStatusBatchResult result = new OrderStatusBatchResult();
+        Map<String, String> locked = lockStatuses(targets.keySet());
+        Map<String, Orders> current = loadOrders(locked.keySet());
+        // 原状态 -> 新状态 -> 订单号
+        Map<String, Map<String, List<String>>> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, String> target : targets.entrySet()) {
+            String id = target.getKey();
+            String status = target.getValue();
+            Orders order = current.get(id);
+            if (order == null) {
+                result.getRejected().put(id, "订单不存在");
+                continue;
+            }
+            // 缓存条目里的状态可能已过期，以加锁读到的为准
+            String oldStatus = locked.get(id);
+            order.setStatus(oldStatus);
+            String error = transitionError(oldStatus, status);
+            if (error != null) {
+                result.getRejected().put(id, error);
+            } else {
+                groups.computeIfAbsent(oldStatus, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(status, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        List<Orders> changed = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<String>>> from : groups.entrySet()) {
+            for (Map.Entry<String, List<String>> to : from.getValue().entrySet()) {
+                List<String> ids = to.getValue();
+                // 原状态为空的一组要用 IS NULL，= NULL 匹配不到任何行
+                LambdaUpdateWrapper<Orders> updateWrapper = new LambdaUpdateWrapper<Orders>()
+                        .set(Orders::getStatus, to.getKey())
+                        .in(Orders::getId, ids);
+                if (from.getKey() == null) {
+                    updateWrapper.isNull(Orders::getStatus);
+                } else {
+                    updateWrapper.eq(Orders::getStatus, from.getKey());
+                }
+                int rows = this.baseMapper.update(null, updateWrapper);
+                if (rows != ids.size()) {
+                    // 已持有行锁，不应出现；整批回滚
+                    throw new IllegalStateException("订单状态已被其他操作修改，请重试");
+                }
+                for (String id : ids) {
+                    result.getUpdated().add(new OrderStatusChange(id, from.getKey(), to.getKey()));
+                    changed.add(current.get(id));
+                }
+            }
+        }
+        if (changed.isEmpty()) {
+            return result;
+        }
+
+        afterCommit(() -> {
+            // 取消 / 撤销取消时调整销售汇总 (改状态前的订单金额和明细)
+            for (int i = 0; i < changed.size(); i++) {
+                OrderStatusChange change = result.getUpdated().get(i);
+                try {
+                    salesRollupService.recordStatusChange(changed.get(i), change.getOldStatus(), change.getNewStatus());
+                } catch (Exception e) {
+                    System.err.println("销售汇总更新失败: " + e.getMessage());
+                }
+                changed.get(i).setStatus(change.getNewStatus());
+            }
+            syncStatusIndex(changed);
+            List<String> ids = new ArrayList<>(changed.size());
+            Map<String, List<OrderStatusChange>> byTable = new LinkedHashMap<>();
+            for (int i = 0; i < changed.size(); i++) {
+                Orders order = changed.get(i);
+                searchIndex.put(order.getId(), withoutItems(order));
+                ids.add(order.getId());
+                if (order.getTableId() != null && !order.getTableId().isEmpty()) {
+                    byTable.computeIfAbsent(order.getTableId(), k -> new ArrayList<>()).add(result.getUpdated().get(i));
+                }
+            }
+            publishSearchChange(ids);
+            evictListBody();
+
+            // 🔥 WebSocket 推送：整批变更合成一条事件，各餐桌只收本桌的变更
+            try {
+                WebSocketServer.sendEvent("ORDER_STATUS_BATCH", result.getUpdated(), WebSocketServer.TOPIC_ORDERS);
+                for (Map.Entry<String, List<OrderStatusChange>> table : byTable.entrySet()) {
+                    WebSocketServer.sendEvent("ORDER_STATUS_BATCH", table.getValue(), WebSocketServer.tableTopic(table.getKey()));
+                }
+            } catch (Exception e) {
+                System.err.println("WebSocket 推送失败: " + e.getMessage());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 按订单号读取订单 (含明细)：先取 Redis 订单条目，缺失的批量查库
+     */
+    private Map<String, Orders> loadOrders(Set<String> ids) {
+        Map<String, Orders> found = new HashMap<>();
+        List<String> idList = new ArrayList<>(ids);
+        List<String> missing = new ArrayList<>();
+        List<String> jsons = redisUtils.hMultiGet(ENTRY_KEY, idList);
+        for (int i = 0; i < idList.size(); i++) {
+            String json = jsons.get(i);
+            if (json != null) {
+                found.put(idList.get(i), JSON.parseObject(json, Orders.class));
+            } else {
+                missing.add(idList.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Orders> loaded = this.listByIds(missing);
+            fillOrderItems(loaded);
+            for (Orders order : loaded) {
+                found.put(order.getId(), order);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 在当前事务中锁住订单行 (SELECT ... FOR UPDATE) 并读出当前状态，锁持有到事务结束
+     * @return 订单号 -> 当前状态，不存在的订单不在结果中
+     */
+    private Map<String, String> lockStatuses(Set<String> ids) {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Orders::getId, Orders::getStatus).in(Orders::getId, ids)
+                .orderByAsc(Orders::getId).last("FOR UPDATE");
+        for (Orders order : this.list(queryWrapper)) {
+            statuses.put(order.getId(), order.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * 校验状态流转 (见 STATUS_TRANSITIONS)
+     * 原状态为空 (历史数据) 时按列默认值 pending 处理，允许显式写入 pending
+     * @return 不允许时的原因，允许时返回 null
+     */
+    private String transitionError(String oldStatus, String status) {
+        String from = oldStatus == null ? DEFAULT_STATUS : oldStatus;
+        if (status.equals(from)) {
+            return oldStatus == null ? null : "已是该状态";
+        }
+        if (!STATUS_TRANSITIONS.getOrDefault(from, Collections.emptySet()).contains(status)) {
+            return "不能从 " + from + " 改为 " + status;
+        }
+        return null;
+    }
+
+    /**
+     * 全量重建订单搜索索引：启动后立即执行一次 (预热)，之后定期执行，兜底漏收的广播
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${restaurant.search.rebuild-interval-ms:600000}")
+    public void rebuildSearchIndex() {
+        searchIndex.beginRebuild();
+        try {
+            Map<String, Orders> snapshot = new HashMap<>();
+            for (Orders order : this.list()) {
+                snapshot.put(order.getId(), order);
+            }
+            searchIndex.finishRebuild(snapshot);
+        } catch (Exception e) {
+            searchIndex.abortRebuild();
+            System.err.println("订单搜索索引重建失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 片段搜索订单号 / 餐桌号，命中的订单从 Redis 订单条目取明细
+     * 索引预热完成前回退到数据库 LIKE 查询
+     */
+    @Override
+    public List<Orders> search(String keyword, Integer limit) {
+        int size = CursorUtils.normalizeSize(limit);
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Orders> hits;
+        if (searchIndex.isReady()) {
+            hits = searchIndex.search(keyword, size);
+        } else {
+            String kw = keyword.trim();
+            LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.and(w -> w.like(Orders::getId, kw).or().like(Orders::getTableId, kw));
+            queryWrapper.orderByDesc(Orders::getCreateTime).orderByDesc(Orders::getId);
+            hits = this.page(new Page<>(1, size, false), queryWrapper).getRecords();
+        }
+        if (hits.isEmpty()) {
+            return hits;
+        }
+
+        // 一次 HMGET 取完整订单 (含明细)，缓存缺失的再批量查库
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Orders hit : hits) {
+            ids.add(hit.getId());
+        }
+        List<String> jsons = redisUtils.hMultiGet(ENTRY_KEY, ids);
+        List<Orders> result = new ArrayList<>(hits.size());
+        List<Orders> missing = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            String json = jsons.get(i);
+            Orders order = json != null ? JSON.parseObject(json, Orders.class) : withoutItems(hits.get(i));
+            if (json == null) {
+                missing.add(order);
+            }
+            result.add(order);
+        }
+        fillOrderItems(missing);
+        return result;
+    }
+
+    /**
+     * 按索引读取订单
+     * @param indexKey 有序集合索引
+     * @return 订单列表；索引未就绪或条目缺失时返回 null，由调用方重建
+     */
+    private List<Orders> readIndexedOrders(String indexKey) {
+        // 一次往返同时读取就绪标记和索引
+        List<Object> results = redisUtils.pipeline(ops -> {
+            ops.hasKey(INDEX_READY_KEY);
+            ops.opsForZSet().reverseRange(indexKey, 0, -1);
+        });
+        if (!Boolean.TRUE.equals(results.get(0))) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> ids = (Set<String>) results.get(1);
+        List<Orders> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return list;
+        }
+        for (String json : redisUtils.hMultiGet(ENTRY_KEY, ids)) {
+            if (json == null) {
+                return null;
+            }
+            list.add(JSON.parseObject(json, Orders.class));
+        }
+        return list;
+    }
+
+    /**
+     * 单飞重建：索引缺失时并发请求只触发一次全量回源 (只有实际执行的那次计入回源耗时)
+     */
+    private List<Orders> rebuildOrderIndexOnce() {
+        return singleFlightCache.singleFlight(TIME_INDEX_KEY,
+                () -> cacheMetrics.recordLoad(LIST_BODY_KEY, CacheMetrics.TIER_REDIS, this::rebuildOrderIndex));
+    }
+
+    /**
+     * 从数据库全量重建 Redis 订单索引
+     * 只覆盖写入，不整体删除，避免冲掉重建期间增量写入的新订单
+     */
+    private List<Orders> rebuildOrderIndex() {
+        List<Orders> list = this.getAllOrders();
+        Set<String> knownStatuses = redisUtils.sMembers(STATUS_SET_KEY);
+        Set<String> staleStatuses = knownStatuses == null ? Collections.emptySet() : knownStatuses;
+        redisUtils.pipeline(ops -> {
+            for (Orders order : list) {
+                writeIndexEntry(ops, order, staleStatuses);
+            }
+            ops.opsForValue().set(INDEX_READY_KEY, "1");
+        });
+
+        list.sort(Comparator.comparing(Orders::getCreateTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Orders::getId)
+                .reversed());
+        return list;
+    }
+
+    /**
+     * 改状态后写回订单条目和状态索引，以数据库中的当前状态为准
+     * 先读条目再写索引不是原子的：两个请求先后改同一订单时，后写 Redis 的可能是较早的状态，
+     * 订单就会停在错误的状态索引里，甚至同时出现在两个状态索引中。
+     * 这里先记下每个订单的版本号再查库取当前状态，然后 WATCH 版本号并核对没变，在 MULTI 中把订单从其他所有状态索引移除
+     * 并写入当前状态，同时版本号 +1；查库之后有别的请求同步过同一订单时核对失败或 EXEC 放弃，重新查库再来，
+     * 最后提交的一次一定写的是数据库里最新的状态。查库放在 WATCH 之前，不在占着 Redis 独占连接时等数据库连接
+     * @param orders 订单 (含明细)，status 会被改成数据库中的当前值
+     */
+    private void syncStatusIndex(List<Orders> orders) {
+        List<String> versionKeys = new ArrayList<>(orders.size());
+        List<String> ids = new ArrayList<>(orders.size());
+        for (Orders order : orders) {
+            versionKeys.add(INDEX_VERSION_PREFIX + order.getId());
+            ids.add(order.getId());
+        }
+        for (int attempt = 1; attempt <= INDEX_SYNC_ATTEMPTS; attempt++) {
+            List<String> versions = redisUtils.multiGet(versionKeys);
+            Map<String, String> statuses = new HashMap<>();
+            for (Orders row : this.list(new LambdaQueryWrapper<Orders>()
+                    .select(Orders::getId, Orders::getStatus)
+                    .in(Orders::getId, ids))) {
+                statuses.put(row.getId(), row.getStatus());
+            }
+            boolean committed = redisUtils.watchAndExec(versionKeys, () -> {
+                if (!versions.equals(redisUtils.multiGet(versionKeys))) {
+                    return null;
+                }
+                Set<String> known = redisUtils.sMembers(STATUS_SET_KEY);
+                Set<String> stale = known == null ? new HashSet<>() : new HashSet<>(known);
+                stale.addAll(statuses.values());
+                stale.remove(null);
+                return new StatusSnapshot(statuses, stale);
+            }, (ops, snapshot) -> {
+                if (snapshot == null) {
+                    // 查库之后已有别的请求同步过，放弃这次
+                    return;
+                }
+                for (Orders order : orders) {
+                    String key = INDEX_VERSION_PREFIX + order.getId();
+                    if (snapshot.statuses().containsKey(order.getId())) {
+                        order.setStatus(snapshot.statuses().get(order.getId()));
+                        writeIndexEntry(ops, order, snapshot.staleStatuses());
+                    }
+                    ops.opsForValue().increment(key);
+                    ops.expire(key, INDEX_VERSION_TTL_SECONDS, TimeUnit.SECONDS);
+                }
+            });
+            if (committed) {
+                return;
+            }
+            // 同一订单正被并发修改，随机退避一小段时间再读，避免几个请求步调一致地互相打断
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        System.err.println("订单状态索引同步失败，重试 " + INDEX_SYNC_ATTEMPTS + " 次后放弃: " + ids);
+    }
+
+    /**
+     * WATCH 之后读到的订单当前状态，以及需要从中移除订单的全部状态索引
+     */
+    private record StatusSnapshot(Map<String, String> statuses, Set<String> staleStatuses) {
+    }
+
+    /**
+     * 在管道内写入单个订单的缓存条目和索引
+     * @param ops 管道操作
+     * @param order 订单 (含明细)
+     * @param staleStatuses 需要从中移除该订单的旧状态索引
+     */
+    private void writeIndexEntry(RedisOperations<String, String> ops, Orders order, Set<String> staleStatuses) {
+        String id = order.getId();
+        ops.opsForHash().put(ENTRY_KEY, id, JSON.toJSONString(order));
+        ops.opsForZSet().add(TIME_INDEX_KEY, id, score(order));
+        for (String stale : staleStatuses) {
+            if (!stale.equals(order.getStatus())) {
+                ops.opsForZSet().remove(STATUS_INDEX_PREFIX + stale, id);
+            }
+        }
+        if (order.getStatus() != null) {
+            ops.opsForZSet().add(STATUS_INDEX_PREFIX + order.getStatus(), id, score(order));
+            ops.opsForSet().add(STATUS_SET_KEY, order.getStatus());
+        }
+    }
+
+    /**
+     * 索引分数：创建时间的毫秒时间戳
+     */
+    private double score(Orders order) {
+        if (order.getCreateTime() == null) {
+            return 0;
+        }
+        return order.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 订单事件的推送主题：全部订单 + 所属餐桌
+     */
+    private String[] orderTopics(String tableId) {
+        if (tableId == null || tableId.isEmpty()) {
+            return new String[]{WebSocketServer.TOPIC_ORDERS};
+        }
+        return new String[]{WebSocketServer.TOPIC_ORDERS, WebSocketServer.tableTopic(tableId)};
+    }
+
+    /**
+     * 不含明细的订单副本 (搜索索引中只保存主表字段)
+     */
+    private Orders withoutItems(Orders order) {
+        Orders copy = new Orders();
+        copy.setId(order.getId());
+        copy.setTableId(order.getTableId());
+        copy.setTotalAmount(order.getTotalAmount());
+        copy.setStatus(order.getStatus());
+        copy.setCreateTime(order.getCreateTime());
+        return copy;
+    }
+
+    /**
+     * 订单列表变化后清除本节点的列表响应体缓存，并广播让其他节点清除，最后升版本号
+     */
+    private void evictListBody() {
+        responseBodyCache.invalidate(LIST_BODY_KEY);
+        redisUtils.publish(RedisUtils.CACHE_EVICT_CHANNEL, LIST_BODY_KEY);
+        // 索引和缓存都更新完再升版本号，拿到新 ETag 的请求一定读到新数据
+        resourceVersions.bump(ResourceVersions.ORDER);
+    }
+
+    /**
+     * 通知其他节点刷新订单搜索索引
+     */
+    private void publishSearchChange(List<String> ids) {
+        redisUtils.publish(RedisUtils.SEARCH_INDEX_CHANNEL,
+                RedisUtils.INSTANCE_ID + "|" + SEARCH_KIND + "|" + String.join(",", ids));
+    }
+
+    /**
+     * 在当前事务提交后执行 (没有事务时立即执行)，避免回滚的订单进入缓存
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
\ No newline at end of file
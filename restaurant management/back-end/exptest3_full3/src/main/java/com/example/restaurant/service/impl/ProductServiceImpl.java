@@ -1,17 +1,36 @@
 package com.example.restaurant.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.restaurant.common.CursorPage;
+import com.example.restaurant.dto.EntityChange;
 import com.example.restaurant.entity.Product;
 import com.example.restaurant.mapper.ProductMapper;
+import com.example.restaurant.service.ImageStorageService;
 import com.example.restaurant.service.ProductService;
+import com.example.restaurant.utils.CursorUtils;
+import com.example.restaurant.utils.LocalCache;
 import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
+import com.example.restaurant.utils.SingleFlightCache;
 import com.example.restaurant.server.WebSocketServer; // 👈 引入 WebSocket
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> implements ProductService {
@@ -20,19 +39,77 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     private RedisUtils redisUtils;
 
     private static final String CACHE_KEY = "product:list";
+    private static final String COUNT_CACHE_KEY = "product:count";
 
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private SingleFlightCache singleFlightCache;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${restaurant.cache.local-max-size:16}")
+    private int localMaxSize;
+
+    @Value("${restaurant.cache.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    // L1：本节点内已解析好的不可变菜品列表，命中时不走网络也不解析 JSON
+    private LocalCache<String, List<Product>> localCache;
+
+    // 失效代数：加载期间若收到失效消息，加载结果不再写入 L1，避免旧数据在本地驻留
+    private final AtomicLong evictGeneration = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LocalCache<>(localMaxSize, localTtlSeconds);
+        // 其他节点修改菜品后会广播失效消息，这里清掉本节点的 L1
+        listenerContainer.addMessageListener((message, pattern) -> {
+            if (CACHE_KEY.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+                evictGeneration.incrementAndGet();
+                localCache.invalidate(CACHE_KEY);
+            }
+        }, new ChannelTopic(RedisUtils.CACHE_EVICT_CHANNEL));
+    }
+
+    /**
+     * 两级缓存读取菜品列表：L1 本地 -> L2 Redis -> 数据库
+     * L2 回源走单飞加载，并在 TTL 快结束时后台提前刷新
+     */
     @Override
     public List<Product> getCachedProductList() {
-        String cacheConfig = redisUtils.get(CACHE_KEY);
-        if (cacheConfig != null && !cacheConfig.isEmpty()) {
-            return JSON.parseArray(cacheConfig, Product.class);
+        List<Product> cached = localCache.get(CACHE_KEY);
+        if (cached != null) {
+            return cached;
         }
 
-        List<Product> list = this.list();
-        if (list != null && !list.isEmpty()) {
-            redisUtils.set(CACHE_KEY, JSON.toJSONString(list), 1800);
-        }
-        return list;
+        // 本节点内同一时刻只有一个线程去 L2 取数并解析，其余线程共享结果
+        return singleFlightCache.singleFlight("local:" + CACHE_KEY, () -> {
+            long generation = evictGeneration.get();
+            String json = singleFlightCache.getOrLoad(CACHE_KEY, 1800, () -> {
+                List<Product> dbList = this.list();
+                return (dbList == null || dbList.isEmpty()) ? null : JSON.toJSONString(dbList);
+            });
+            if (json == null || json.isEmpty()) {
+                return Collections.<Product>emptyList();
+            }
+
+            List<Product> parsed = JSON.parseArray(json, Product.class);
+            fillImageVariants(parsed);
+            List<Product> list = Collections.unmodifiableList(parsed);
+            if (generation == evictGeneration.get()) {
+                localCache.put(CACHE_KEY, list);
+            }
+            return list;
+        });
     }
 
     @Override
@@ -41,12 +118,50 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         Product product = new Product();
         product.setId(id);
         product.setIsRecommend(isRecommend);
+        // updateById 在事务提交后清除缓存、升版本号并推送 PRODUCT_UPDATE (只含 id 和推荐状态)
         this.updateById(product);
+    }
 
-        redisUtils.delete(CACHE_KEY);
+    @Override
+    public CursorPage<Product> pageByCursor(String after, Integer size, String keyword) {
+        int pageSize = CursorUtils.normalizeSize(size);
+        LambdaQueryWrapper<Product> queryWrapper = new LambdaQueryWrapper<>();
+
+        if (keyword != null && !keyword.isEmpty()) {
+            queryWrapper.and(w -> w.like(Product::getName, keyword)
+                    .or()
+                    .like(Product::getCategory, keyword));
+        }
 
-        // 🔥 WebSocket 推送：菜品信息更新（比如推荐状态改变）
-        try { WebSocketServer.sendInfo("PRODUCT_UPDATE"); } catch (Exception e) {}
+        // 从游标位置往后 seek：id < 游标 id
+        String[] cursor = CursorUtils.decode(after);
+        if (cursor != null) {
+            queryWrapper.lt(Product::getId, Long.valueOf(cursor[1]));
+        }
+        queryWrapper.orderByDesc(Product::getId);
+
+        // 带关键词时不返回总数
+        Long total = keyword == null || keyword.isEmpty()
+                ? CursorUtils.approximateCount(redisUtils, COUNT_CACHE_KEY, this) : null;
+        CursorPage<Product> page = CursorUtils.fetchPage(this, queryWrapper, pageSize,
+                p -> CursorUtils.encode(null, p.getId()), total);
+        fillImageVariants(page.getRecords());
+        return page;
+    }
+
+    /**
+     * 回填图片变体地址；变体还没生成的菜品保持为空，由前端回退到原图
+     */
+    @Override
+    public void fillImageVariants(List<Product> products) {
+        if (products == null) {
+            return;
+        }
+        for (Product product : products) {
+            Map<String, String> variants = imageStorageService.variantUrls(product.getImageUrl());
+            product.setThumbUrl(variants.get(ImageStorageService.VARIANT_THUMB));
+            product.setMediumUrl(variants.get(ImageStorageService.VARIANT_MEDIUM));
+        }
     }
 
     // --- 重写增删改，加入 WebSocket 通知 ---
@@ -55,9 +170,11 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     public boolean save(Product entity) {
         boolean result = super.save(entity);
         if (result) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 推送
-            try { WebSocketServer.sendInfo("PRODUCT_UPDATE"); } catch (Exception e) {}
+            afterCommit(() -> {
+                evictCache();
+                // 🔥 推送：新增的完整菜品
+                try { WebSocketServer.sendEvent("PRODUCT_UPDATE", new EntityChange(EntityChange.CREATED, entity.getId(), entity), WebSocketServer.TOPIC_MENU); } catch (Exception e) {}
+            });
         }
         return result;
     }
@@ -66,9 +183,11 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     public boolean updateById(Product entity) {
         boolean result = super.updateById(entity);
         if (result) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 推送
-            try { WebSocketServer.sendInfo("PRODUCT_UPDATE"); } catch (Exception e) {}
+            afterCommit(() -> {
+                evictCache();
+                // 🔥 推送：本次修改的字段
+                try { WebSocketServer.sendEvent("PRODUCT_UPDATE", new EntityChange(EntityChange.UPDATED, entity.getId(), entity), WebSocketServer.TOPIC_MENU); } catch (Exception e) {}
+            });
         }
         return result;
     }
@@ -77,10 +196,41 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     public boolean removeById(java.io.Serializable id) {
         boolean result = super.removeById(id);
         if (result) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 推送
-            try { WebSocketServer.sendInfo("PRODUCT_UPDATE"); } catch (Exception e) {}
+            afterCommit(() -> {
+                evictCache();
+                // 🔥 推送：被删除的菜品 ID
+                try { WebSocketServer.sendEvent("PRODUCT_UPDATE", new EntityChange(EntityChange.DELETED, id, null), WebSocketServer.TOPIC_MENU); } catch (Exception e) {}
+            });
         }
         return result;
     }
+
+    /**
+     * 清除两级缓存：删除 Redis (L2)、清空本节点 L1 和响应体缓存，并广播让其他节点清空各自的本地缓存
+     */
+    private void evictCache() {
+        singleFlightCache.invalidate(CACHE_KEY);
+        evictGeneration.incrementAndGet();
+        localCache.invalidate(CACHE_KEY);
+        responseBodyCache.invalidate(LIST_BODY_KEY);
+        redisUtils.publish(RedisUtils.CACHE_EVICT_CHANNEL, CACHE_KEY);
+        // 缓存清完再升版本号，拿到新 ETag 的请求一定读到新数据
+        resourceVersions.bump(ResourceVersions.PRODUCT);
+    }
+
+    /**
+     * 在当前事务提交后执行 (没有事务时立即执行)：提交前清缓存、升版本号，并发读请求会把未提交前的旧数据按新版本重新缓存
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
\ No newline at end of file
@@ -1,16 +1,49 @@
 package com.example.restaurant.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.restaurant.dto.EntityChange;
+import com.example.restaurant.dto.FreeTable;
+import com.example.restaurant.common.CursorPage;
 import com.example.restaurant.entity.Reservation;
 import com.example.restaurant.mapper.ReservationMapper;
 import com.example.restaurant.service.ReservationService;
+import com.example.restaurant.utils.CursorUtils;
+import com.example.restaurant.utils.NgramIndex;
 import com.example.restaurant.utils.RedisUtils;
+import com.example.restaurant.utils.ResourceVersions;
+import com.example.restaurant.utils.ResponseBodyCache;
+import com.example.restaurant.utils.SingleFlightCache;
+import com.example.restaurant.utils.TableSlotIndex;
 import com.example.restaurant.server.WebSocketServer; // 👈 引入 WebSocket
+import com.example.restaurant.utils.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reservation> implements ReservationService {
@@ -19,19 +52,365 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
     private RedisUtils redisUtils;
 
     private static final String CACHE_KEY = "reservation:list";
+    private static final String COUNT_CACHE_KEY = "reservation:count";
 
+    @Autowired
+    private SingleFlightCache singleFlightCache;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    // 搜索索引广播中的类型标识
+    private static final String SEARCH_KIND = "reservation";
+
+    // 姓名 / 手机号 / 餐桌号的 N-gram 索引，结果按 ID 倒序
+    private NgramIndex<Long, Reservation> searchIndex;
+
+    // 收到索引广播后回源查库的线程：监听线程只有一个，不能在上面查库；单线程执行保证同一预约按广播顺序刷新
+    private ExecutorService indexReloadExecutor;
+
+    @Value("${restaurant.search.gram-size:3}")
+    private int gramSize;
+
+    // 订桌锁：同一张餐桌的预订在所有节点间串行执行
+    private static final String LOCK_KEY_PREFIX = "reservation:lock:";
+
+    // 各餐桌占用时段的索引 (只含占用餐桌的预约)
+    private TableSlotIndex slotIndex;
+
+    // 餐桌号 -> 可容纳人数，保持配置中的顺序
+    private final Map<String, Integer> tableCapacities = new LinkedHashMap<>();
+
+    @Value("${restaurant.reservation.seating-minutes:240}")
+    private long seatingMinutes;
+
+    @Value("${restaurant.reservation.tables:}")
+    private String tables;
+
+    @Value("${restaurant.reservation.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    @Value("${restaurant.reservation.lock-wait-ms:2000}")
+    private long lockWaitMs;
+
+    @PostConstruct
+    public void init() {
+        searchIndex = new NgramIndex<>(gramSize,
+                r -> new String[]{r.getName(), r.getPhone(), r.getTableId()},
+                Comparator.comparing(Reservation::getId, Comparator.nullsLast(Comparator.reverseOrder())));
+        slotIndex = new TableSlotIndex(Duration.ofMinutes(seatingMinutes));
+        // 餐桌配置格式：餐桌号:人数,餐桌号:人数
+        for (String table : tables.split(",")) {
+            String[] parts = table.trim().split(":");
+            if (parts.length == 2) {
+                tableCapacities.put(parts[0].trim(), Integer.valueOf(parts[1].trim()));
+            }
+        }
+        indexReloadExecutor = Executors.newSingleThreadExecutor(ThreadFactories.named("reservation-index-reload-", false));
+        // 其他节点修改预约后广播主键，这里回源刷新本节点索引
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length == 3 && SEARCH_KIND.equals(parts[1]) && !RedisUtils.INSTANCE_ID.equals(parts[0])) {
+                String[] ids = parts[2].split(",");
+                indexReloadExecutor.execute(() -> {
+                    try {
+                        for (String id : ids) {
+                            reloadEntry(Long.valueOf(id));
+                        }
+                    } catch (Exception e) {
+                        // 漏掉的由定期全量重建兜底
+                        System.err.println("预约索引刷新失败: " + e.getMessage());
+                    }
+                });
+            }
+        }, new ChannelTopic(RedisUtils.SEARCH_INDEX_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexReloadExecutor.shutdownNow();
+    }
+
+    /**
+     * 全量重建搜索索引和餐桌时段索引：启动后立即执行一次 (预热)，之后定期执行，兜底漏收的广播
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${restaurant.search.rebuild-interval-ms:600000}")
+    public void rebuildIndexes() {
+        searchIndex.beginRebuild();
+        slotIndex.beginRebuild();
+        try {
+            Map<Long, Reservation> snapshot = new HashMap<>();
+            Map<Long, TableSlotIndex.Slot> slots = new HashMap<>();
+            for (Reservation reservation : this.list()) {
+                snapshot.put(reservation.getId(), reservation);
+                if (occupiesTable(reservation)) {
+                    slots.put(reservation.getId(), toSlot(reservation));
+                }
+            }
+            searchIndex.finishRebuild(snapshot);
+            slotIndex.finishRebuild(slots);
+        } catch (Exception e) {
+            searchIndex.abortRebuild();
+            slotIndex.abortRebuild();
+            System.err.println("预约索引重建失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 片段搜索姓名 / 手机号 / 餐桌号
+     * 索引预热完成前回退到数据库 LIKE 查询
+     */
+    @Override
+    public List<Reservation> search(String keyword, Integer limit) {
+        int size = CursorUtils.normalizeSize(limit);
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (searchIndex.isReady()) {
+            return searchIndex.search(keyword, size);
+        }
+
+        String kw = keyword.trim();
+        LambdaQueryWrapper<Reservation> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.and(w -> w.like(Reservation::getName, kw)
+                .or()
+                .like(Reservation::getPhone, kw)
+                .or()
+                .like(Reservation::getTableId, kw));
+        queryWrapper.orderByDesc(Reservation::getId);
+        return this.page(new Page<>(1, size, false), queryWrapper).getRecords();
+    }
+
+    /**
+     * 空闲餐桌：索引预热完成前回退到数据库查询占用情况
+     */
+    @Override
+    public List<FreeTable> findFreeTables(LocalDateTime time, int people) {
+        Set<String> busy = slotIndex.isReady() ? slotIndex.busyTables(time) : busyTablesFromDb(time);
+        List<FreeTable> free = new ArrayList<>();
+        for (Map.Entry<String, Integer> table : tableCapacities.entrySet()) {
+            if (table.getValue() >= people && !busy.contains(table.getKey())) {
+                free.add(new FreeTable(table.getKey(), table.getValue()));
+            }
+        }
+        // 稳定排序，容量相同的按配置顺序
+        free.sort(Comparator.comparing(FreeTable::getCapacity));
+        return free;
+    }
+
+    /**
+     * 预订餐桌
+     * 按餐桌加 Redis 锁，锁内查库确认无冲突后保存，其他节点刚保存、还没广播过来的预约也能查到；
+     * 已被占用的时段在加锁前就拒绝；持锁超时的处理见 writeUnderTableLock
+     */
+    @Override
+    public void book(Reservation reservation) {
+        String tableId = reservation.getTableId();
+        if (tableId == null || tableId.isEmpty()) {
+            // 未选餐桌的预约由前台稍后安排，不做时段检查
+            save(reservation);
+            return;
+        }
+        LocalDateTime time = reservation.getReserveTime();
+        if (time == null) {
+            throw new IllegalArgumentException("请填写预订时间");
+        }
+        if (!tableCapacities.isEmpty()) {
+            Integer capacity = tableCapacities.get(tableId);
+            if (capacity == null) {
+                throw new IllegalArgumentException("餐桌 " + tableId + " 不存在");
+            }
+            if (reservation.getPeopleCount() != null && reservation.getPeopleCount() > capacity) {
+                throw new IllegalArgumentException("餐桌 " + tableId + " 最多容纳 " + capacity + " 人");
+            }
+        }
+        if (!occupiesTable(reservation)) {
+            save(reservation);
+            return;
+        }
+        writeUnderTableLock(tableId, time, null, () -> {
+            save(reservation);
+            return reservation.getId();
+        }, this::removeById);
+    }
+
+    /**
+     * 在餐桌锁内确认时段无冲突后执行写入
+     * 锁按 lock-timeout-ms 自动过期，持锁线程卡顿 (GC、慢 SQL) 超过这个时间后别的节点可能同时拿到锁并写入；
+     * 所以写完再核对令牌：锁仍是自己的说明全程独占，否则回库复查，有冲突就撤销本次写入 (丢了锁的一方让步)
+     * @param excludeId 不参与冲突比较的预约 (修改预约本身时传入)，可为 null
+     * @param write 写入并返回预约 ID
+     * @param undo 撤销写入
+     */
+    private void writeUnderTableLock(String tableId, LocalDateTime time, Long excludeId,
+                                     Supplier<Long> write, Consumer<Long> undo) {
+        // 本节点索引显示有冲突时先不加锁查一次库 (索引可能还没收到其他节点取消预约的广播)，确认冲突直接拒绝
+        if (slotIndex.isReady() && !slotIndex.isFree(tableId, time, excludeId)
+                && !overlapping(tableId, time, excludeId).isEmpty()) {
+            throw new IllegalStateException("餐桌 " + tableId + " 该时段已被预订");
+        }
+
+        String lockKey = LOCK_KEY_PREFIX + tableId;
+        String token = RedisUtils.INSTANCE_ID + ":" + UUID.randomUUID();
+        acquireLock(lockKey, token);
+        try {
+            if (!overlapping(tableId, time, excludeId).isEmpty()) {
+                throw new IllegalStateException("餐桌 " + tableId + " 该时段已被预订");
+            }
+            Long id = write.get();
+            if (!redisUtils.holdsLock(lockKey, token) && !overlapping(tableId, time, id).isEmpty()) {
+                System.err.println("餐桌锁在写入前已过期，撤销预约 " + id);
+                undo.accept(id);
+                throw new IllegalStateException("餐桌 " + tableId + " 该时段已被预订");
+            }
+        } finally {
+            redisUtils.unlock(lockKey, token);
+        }
+    }
+
+    /**
+     * 等待订桌锁，超过 lock-wait-ms 仍未拿到时放弃
+     */
+    private void acquireLock(String lockKey, String token) {
+        long deadline = System.currentTimeMillis() + lockWaitMs;
+        while (!redisUtils.tryLock(lockKey, token, lockTimeoutMs)) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("餐桌正在被预订，请稍后重试");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("餐桌正在被预订，请稍后重试");
+            }
+        }
+    }
+
+    /**
+     * 数据库中与 [time, time + 用餐时长) 相交、仍占用餐桌的预约
+     * @param tableId 为 null 时查所有餐桌
+     * @param excludeId 不参与比较的预约，可为 null
+     */
+    private List<Reservation> overlapping(String tableId, LocalDateTime time, Long excludeId) {
+        Duration seating = Duration.ofMinutes(seatingMinutes);
+        LambdaQueryWrapper<Reservation> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Reservation::getId, Reservation::getTableId)
+                .eq(tableId != null, Reservation::getTableId, tableId)
+                .isNotNull(tableId == null, Reservation::getTableId)
+                .ne(excludeId != null, Reservation::getId, excludeId)
+                .gt(Reservation::getReserveTime, time.minus(seating))
+                .lt(Reservation::getReserveTime, time.plus(seating))
+                .and(w -> w.isNull(Reservation::getStatus).or().notIn(Reservation::getStatus, RELEASED_STATUSES));
+        return this.list(queryWrapper);
+    }
+
+    private Set<String> busyTablesFromDb(LocalDateTime time) {
+        Set<String> busy = new HashSet<>();
+        for (Reservation reservation : overlapping(null, time, null)) {
+            busy.add(reservation.getTableId());
+        }
+        return busy;
+    }
+
+    /**
+     * 是否占用餐桌：选了餐桌、有预订时间、且未完成 / 取消 (状态为空时数据库默认 confirmed)
+     */
+    private static boolean occupiesTable(Reservation reservation) {
+        return reservation.getTableId() != null && !reservation.getTableId().isEmpty()
+                && reservation.getReserveTime() != null
+                && (reservation.getStatus() == null || !RELEASED_STATUSES.contains(reservation.getStatus()));
+    }
+
+    private static TableSlotIndex.Slot toSlot(Reservation reservation) {
+        return new TableSlotIndex.Slot(reservation.getTableId(), reservation.getReserveTime());
+    }
+
+    /**
+     * 更新时段索引中的一个预约 (不再占用餐桌的移出)
+     */
+    private void indexSlot(Long id, Reservation reservation) {
+        if (reservation != null && occupiesTable(reservation)) {
+            slotIndex.put(id, toSlot(reservation));
+        } else {
+            slotIndex.remove(id);
+        }
+    }
+
+    /**
+     * 按主键回源刷新搜索索引和时段索引条目 (已删除则移出索引)
+     */
+    private void reloadEntry(Long id) {
+        Reservation reservation = this.getById(id);
+        if (reservation == null) {
+            searchIndex.remove(id);
+        } else {
+            searchIndex.put(id, reservation);
+        }
+        indexSlot(id, reservation);
+    }
+
+    /**
+     * 清除预约列表缓存：删除 Redis、清空本节点响应体缓存，并广播让其他节点清空各自的响应体缓存
+     */
+    private void evictCache() {
+        singleFlightCache.invalidate(CACHE_KEY);
+        responseBodyCache.invalidate(LIST_BODY_KEY);
+        redisUtils.publish(RedisUtils.CACHE_EVICT_CHANNEL, LIST_BODY_KEY);
+        // 缓存清完再升版本号，拿到新 ETag 的请求一定读到新数据
+        resourceVersions.bump(ResourceVersions.RESERVATION);
+    }
+
+    /**
+     * 通知其他节点刷新索引
+     */
+    private void publishSearchChange(Object id) {
+        redisUtils.publish(RedisUtils.SEARCH_INDEX_CHANNEL, RedisUtils.INSTANCE_ID + "|" + SEARCH_KIND + "|" + id);
+    }
+
+    /**
+     * 读取缓存的预约列表
+     * 缓存未命中时单飞回源 (并发请求只查一次数据库)，TTL 快结束时后台提前刷新
+     */
     @Override
     public List<Reservation> getCachedReservationList() {
-        String json = redisUtils.get(CACHE_KEY);
-        if (json != null && !json.isEmpty()) {
-            return JSON.parseArray(json, Reservation.class);
+        String json = singleFlightCache.getOrLoad(CACHE_KEY, 600, () -> {
+            List<Reservation> list = this.list();
+            return (list == null || list.isEmpty()) ? null : JSON.toJSONString(list);
+        });
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return JSON.parseArray(json, Reservation.class);
+    }
+
+    @Override
+    public CursorPage<Reservation> pageByCursor(String after, Integer size, String keyword) {
+        int pageSize = CursorUtils.normalizeSize(size);
+        LambdaQueryWrapper<Reservation> queryWrapper = new LambdaQueryWrapper<>();
+
+        if (keyword != null && !keyword.isEmpty()) {
+            queryWrapper.and(w -> w.like(Reservation::getName, keyword)
+                    .or()
+                    .like(Reservation::getPhone, keyword));
         }
 
-        List<Reservation> list = this.list();
-        if (list != null && !list.isEmpty()) {
-            redisUtils.set(CACHE_KEY, JSON.toJSONString(list), 600);
+        // 从游标位置往后 seek：id < 游标 id
+        String[] cursor = CursorUtils.decode(after);
+        if (cursor != null) {
+            queryWrapper.lt(Reservation::getId, Long.valueOf(cursor[1]));
         }
-        return list;
+        queryWrapper.orderByDesc(Reservation::getId);
+
+        // 带关键词时不返回总数
+        Long total = keyword == null || keyword.isEmpty()
+                ? CursorUtils.approximateCount(redisUtils, COUNT_CACHE_KEY, this) : null;
+        return CursorUtils.fetchPage(this, queryWrapper, pageSize, r -> CursorUtils.encode(null, r.getId()), total);
     }
 
     // --- 重写增删改，加入 WebSocket 通知 ---
@@ -40,20 +419,53 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
     public boolean save(Reservation entity) {
         boolean r = super.save(entity);
         if (r) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 WebSocket 推送：有新预约
-            try { WebSocketServer.sendInfo("RESERVATION_UPDATE"); } catch (Exception e) {}
+            evictCache();
+            searchIndex.put(entity.getId(), entity);
+            indexSlot(entity.getId(), entity);
+            publishSearchChange(entity.getId());
+            // 🔥 WebSocket 推送：有新预约 (完整预约信息)
+            try { WebSocketServer.sendEvent("RESERVATION_UPDATE", new EntityChange(EntityChange.CREATED, entity.getId(), entity), WebSocketServer.TOPIC_RESERVATIONS); } catch (Exception e) {}
         }
         return r;
     }
 
+    /**
+     * 修改预约
+     * 修改后开始占用餐桌 (取消的预约恢复、换桌、改时间) 时与 book 一样加锁查冲突，冲突抛 IllegalStateException
+     */
     @Override
     public boolean updateById(Reservation entity) {
+        Reservation previous = entity.getId() == null ? null : this.getById(entity.getId());
+        if (previous == null) {
+            return applyUpdate(entity);
+        }
+        Reservation merged = new Reservation();
+        merged.setTableId(entity.getTableId() != null ? entity.getTableId() : previous.getTableId());
+        merged.setReserveTime(entity.getReserveTime() != null ? entity.getReserveTime() : previous.getReserveTime());
+        merged.setStatus(entity.getStatus() != null ? entity.getStatus() : previous.getStatus());
+        boolean claimsSlot = occupiesTable(merged) && (!occupiesTable(previous)
+                || !merged.getTableId().equals(previous.getTableId())
+                || !merged.getReserveTime().equals(previous.getReserveTime()));
+        if (!claimsSlot) {
+            return applyUpdate(entity);
+        }
+        boolean[] updated = new boolean[1];
+        writeUnderTableLock(merged.getTableId(), merged.getReserveTime(), entity.getId(), () -> {
+            updated[0] = applyUpdate(entity);
+            return entity.getId();
+        }, id -> applyUpdate(previous));
+        return updated[0];
+    }
+
+    private boolean applyUpdate(Reservation entity) {
         boolean r = super.updateById(entity);
         if (r) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 WebSocket 推送：预约状态变更
-            try { WebSocketServer.sendInfo("RESERVATION_UPDATE"); } catch (Exception e) {}
+            evictCache();
+            // 传入的可能只有部分字段，回源取完整记录
+            reloadEntry(entity.getId());
+            publishSearchChange(entity.getId());
+            // 🔥 WebSocket 推送：预约状态变更 (本次修改的字段)
+            try { WebSocketServer.sendEvent("RESERVATION_UPDATE", new EntityChange(EntityChange.UPDATED, entity.getId(), entity), WebSocketServer.TOPIC_RESERVATIONS); } catch (Exception e) {}
         }
         return r;
     }
@@ -62,9 +474,12 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
     public boolean removeById(java.io.Serializable id) {
         boolean r = super.removeById(id);
         if (r) {
-            redisUtils.delete(CACHE_KEY);
-            // 🔥 WebSocket 推送
-            try { WebSocketServer.sendInfo("RESERVATION_UPDATE"); } catch (Exception e) {}
+            evictCache();
+            searchIndex.remove(Long.valueOf(id.toString()));
+            slotIndex.remove(Long.valueOf(id.toString()));
+            publishSearchChange(id);
+            // 🔥 WebSocket 推送：被删除的预约 ID
+            try { WebSocketServer.sendEvent("RESERVATION_UPDATE", new EntityChange(EntityChange.DELETED, id, null), WebSocketServer.TOPIC_RESERVATIONS); } catch (Exception e) {}
         }
         return r;
     }
@@ -0,0 +1,661 @@
+package com.example.restaurant.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.restaurant.entity.OrderItem;
+import com.example.restaurant.entity.Orders;
+import com.example.restaurant.entity.Product;
+import com.example.restaurant.entity.SalesRollup;
+import com.example.restaurant.mapper.OrderItemMapper;
+import com.example.restaurant.mapper.OrdersMapper;
+import com.example.restaurant.mapper.SalesRollupMapper;
+import com.example.restaurant.service.ProductService;
+import com.example.restaurant.service.SalesRollupService;
+import com.example.restaurant.utils.RedisUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 销售汇总服务实现
+ * 内存中的汇总 = sales_rollup 表中已提交的部分 + 本节点尚未提交的增量 (pending)；
+ * 定时任务把增量累加进表 (INSERT ... ON DUPLICATE KEY UPDATE x = x + 增量)，再重新读表，
+ * 多节点部署时各自提交增量，读表后即可看到其他节点的数据；提交和全量重建由 Redis 锁跨节点互斥
+ */
+@Service
+public class SalesRollupServiceImpl extends ServiceImpl<SalesRollupMapper, SalesRollup> implements SalesRollupService {
+
+    // 全部订单累计 (只有一个取值)
+    private static final String DIMENSION_TOTAL = "total";
+    private static final String BUCKET_ALL = "all";
+
+    private static final String UNCATEGORIZED = "未分类";
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    // 单次按天查询的最大跨度
+    private static final int MAX_DAYS = 366;
+
+    // 跨节点维护锁：任一节点提交增量或全量重建时持有
+    private static final String MAINTENANCE_LOCK_KEY = "rollup:maintenance:lock";
+
+    // 重建广播的消息类型，消息格式为 "实例标识|类型|内容"
+    private static final String REBUILD_START = "start";
+    private static final String REBUILD_SCAN = "scan";
+    private static final String REBUILD_DONE = "done";
+    private static final String REBUILD_ABORT = "abort";
+
+    @Autowired
+    private OrdersMapper ordersMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    // 跨节点维护锁的过期时间，须大于一次全量重建的耗时
+    @Value("${restaurant.rollup.lock-timeout-ms:600000}")
+    private long lockTimeoutMillis;
+
+    // 重建时每页扫描的订单数 (同时也是每条明细 IN 查询的订单号数量)
+    @Value("${restaurant.order.item-batch-size:500}")
+    private int pageSize;
+
+    // 每条多行 INSERT 的行数
+    @Value("${restaurant.order.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    // 以下三个 Map 均由 lock 保护：维度 -> 取值 -> 计数
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, Map<String, Tally>> totals = new HashMap<>();
+    private Map<String, Map<String, Tally>> pending = new HashMap<>();
+    // 重建期间扫描不到的变化 (截止时间之后新建的订单、扫描已经读过的订单改状态)，重建完成后作为 pending 保留
+    private Map<String, Map<String, Tally>> sinceCutoff;
+    private LocalDateTime rebuildCutoff;
+    // 重建已读到的最大订单号 (按订单号升序扫描)
+    private String scannedThrough;
+
+    // 本节点内提交增量和全量重建互斥 (跨节点另有 Redis 锁)
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private volatile boolean loaded;
+
+    // 菜品 ID -> 分类，菜品列表缓存更新 (实例变化) 后重建
+    private volatile CategoryIndex categoryIndex = new CategoryIndex(null, Collections.emptyMap());
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRebuildMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RedisUtils.ROLLUP_REBUILD_CHANNEL));
+    }
+
+    @Override
+    public void recordOrders(List<Orders> orders) {
+        List<OrderDelta> deltas = new ArrayList<>(orders.size());
+        for (Orders order : orders) {
+            if (!STATUS_CANCELLED.equals(order.getStatus())) {
+                deltas.add(delta(order, 1));
+            }
+        }
+        merge(deltas);
+    }
+
+    @Override
+    public void recordStatusChange(Orders order, String oldStatus, String newStatus) {
+        // 与重建一致：除已取消外都计入 (状态为空的历史订单也计入)
+        boolean counted = !STATUS_CANCELLED.equals(oldStatus);
+        boolean nowCounted = newStatus != null && !STATUS_CANCELLED.equals(newStatus);
+        if (counted == nowCounted) {
+            return;
+        }
+        merge(Collections.singletonList(delta(order, nowCounted ? 1 : -1)));
+    }
+
+    @Override
+    public Map<String, Object> overview() {
+        LocalDate today = LocalDate.now();
+        Map<String, Object> overview = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            overview.put("today", toEntity(DIMENSION_DAY, today.format(DAY_FORMAT)));
+            overview.put("yesterday", toEntity(DIMENSION_DAY, today.minusDays(1).format(DAY_FORMAT)));
+            Tally week = new Tally();
+            for (int i = 0; i < 7; i++) {
+                week.add(tally(DIMENSION_DAY, today.minusDays(i).format(DAY_FORMAT)));
+            }
+            overview.put("last7Days", week.toEntity(DIMENSION_DAY, today.minusDays(6).format(DAY_FORMAT)));
+            overview.put("total", toEntity(DIMENSION_TOTAL, BUCKET_ALL));
+        } finally {
+            lock.unlock();
+        }
+        return overview;
+    }
+
+    @Override
+    public List<SalesRollup> topProducts(int limit, String sort) {
+        Comparator<SalesRollup> order = "revenue".equals(sort)
+                ? Comparator.comparing(SalesRollup::getRevenue).thenComparing(SalesRollup::getQuantity)
+                : Comparator.comparing(SalesRollup::getQuantity).thenComparing(SalesRollup::getRevenue);
+        List<SalesRollup> list = snapshot(DIMENSION_PRODUCT);
+        list.sort(order.reversed());
+        return list.size() > limit ? new ArrayList<>(list.subList(0, Math.max(0, limit))) : list;
+    }
+
+    @Override
+    public List<SalesRollup> categories() {
+        List<SalesRollup> list = snapshot(DIMENSION_CATEGORY);
+        list.sort(Comparator.comparing(SalesRollup::getRevenue).reversed());
+        return list;
+    }
+
+    @Override
+    public List<SalesRollup> hourly(LocalDate date) {
+        List<SalesRollup> list = new ArrayList<>(24);
+        lock.lock();
+        try {
+            for (int hour = 0; hour < 24; hour++) {
+                list.add(toEntity(DIMENSION_HOUR, date.atTime(hour, 0).format(HOUR_FORMAT)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return list;
+    }
+
+    @Override
+    public List<SalesRollup> daily(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days <= 0 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("日期区间须在 1~" + MAX_DAYS + " 天之间");
+        }
+        List<SalesRollup> list = new ArrayList<>((int) days);
+        lock.lock();
+        try {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                list.add(toEntity(DIMENSION_DAY, day.format(DAY_FORMAT)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return list;
+    }
+
+    /**
+     * 全量重建：按订单号升序分页扫描重建开始前创建的订单，汇总结果整体替换 sales_rollup 表；
+     * 扫描期间新下的订单、以及已扫过的订单发生的取消 / 撤销取消记在 sinceCutoff 里，替换后作为未提交增量保留。
+     * 多节点部署时先取得跨节点维护锁 (期间各节点都不提交增量)，并把开始、扫描进度、完成广播出去，
+     * 其他节点据此同样划分本地增量：扫描能反映的丢弃，反映不到的保留，不会在新表上重复累加。
+     * 增量在改状态落库之后才记录，恰好在扫描读到该订单前后一瞬间发生的改动仍可能多计或少计一次 (其他节点还要加上广播延迟)，
+     * 宜在低峰期重建，必要时再重建一次即可修正
+     */
+    @Override
+    public long rebuild() {
+        if (!maintenanceLock.tryLock()) {
+            throw new IllegalStateException("汇总正在提交或重建，请稍后再试");
+        }
+        try {
+            String token = UUID.randomUUID().toString();
+            if (!redisUtils.tryLock(MAINTENANCE_LOCK_KEY, token, lockTimeoutMillis)) {
+                throw new IllegalStateException("其他节点正在提交或重建汇总，请稍后再试");
+            }
+            try {
+                return rebuildLocked();
+            } finally {
+                redisUtils.unlock(MAINTENANCE_LOCK_KEY, token);
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    // 调用方持有本地和跨节点维护锁
+    private long rebuildLocked() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        beginRebuildWindow(cutoff);
+        broadcast(REBUILD_START, cutoff.toString());
+
+        Map<String, Map<String, Tally>> fresh = new HashMap<>();
+        long scanned = 0;
+        try {
+            String lastId = null;
+            while (true) {
+                LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+                queryWrapper.lt(Orders::getCreateTime, cutoff);
+                if (lastId != null) {
+                    queryWrapper.gt(Orders::getId, lastId);
+                }
+                queryWrapper.orderByAsc(Orders::getId);
+                List<Orders> page = ordersMapper.selectPage(new Page<>(1, Math.max(1, pageSize), false), queryWrapper)
+                        .getRecords();
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+                advanceScan(lastId);
+                broadcast(REBUILD_SCAN, lastId);
+                fillItems(page);
+                for (Orders order : page) {
+                    if (!STATUS_CANCELLED.equals(order.getStatus())) {
+                        accumulate(fresh, order, 1);
+                    }
+                }
+                scanned += page.size();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                this.baseMapper.deleteAll();
+                writeRows(fresh);
+            });
+        } catch (RuntimeException e) {
+            endRebuildWindow(false);
+            broadcast(REBUILD_ABORT, "");
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            endRebuildWindow(true);
+            totals = copy(fresh);
+            addAll(totals, pending);
+        } finally {
+            lock.unlock();
+        }
+        broadcast(REBUILD_DONE, "");
+        loaded = true;
+        return scanned;
+    }
+
+    /**
+     * 定期提交增量并重新读表；首次执行时表为空而订单表有数据则先全量重建 (首次上线补历史)
+     * 本节点或其他节点正在重建 / 提交时跳过本轮
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${restaurant.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        if (!maintenanceLock.tryLock()) {
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        boolean locked = false;
+        try {
+            locked = redisUtils.tryLock(MAINTENANCE_LOCK_KEY, token, lockTimeoutMillis);
+            if (!locked) {
+                return;
+            }
+            if (!loaded && this.baseMapper.selectCount(null) == 0 && ordersMapper.selectCount(null) > 0) {
+                rebuildLocked();
+                return;
+            }
+
+            Map<String, Map<String, Tally>> batch;
+            lock.lock();
+            try {
+                batch = pending;
+                pending = new HashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeRows(batch));
+                } catch (RuntimeException e) {
+                    // 提交失败：增量放回，下一轮重试
+                    lock.lock();
+                    try {
+                        addAll(pending, batch);
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+            }
+
+            List<SalesRollup> rows = this.list();
+            lock.lock();
+            try {
+                Map<String, Map<String, Tally>> reloaded = new HashMap<>();
+                for (SalesRollup row : rows) {
+                    bucket(reloaded, row.getDimension(), row.getBucket()).add(Tally.of(row));
+                }
+                addAll(reloaded, pending);
+                totals = reloaded;
+            } finally {
+                lock.unlock();
+            }
+            loaded = true;
+        } catch (Exception e) {
+            System.err.println("销售汇总提交失败: " + e.getMessage());
+        } finally {
+            if (locked) {
+                redisUtils.unlock(MAINTENANCE_LOCK_KEY, token);
+            }
+            maintenanceLock.unlock();
+        }
+    }
+
+    // 收到其他节点的重建广播：与本节点重建时一样划分增量；完成后汇总内存值在下一轮 flush 重新读表时更新
+    private void onRebuildMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length < 3 || RedisUtils.INSTANCE_ID.equals(parts[0])) {
+            return;
+        }
+        switch (parts[1]) {
+            case REBUILD_START -> beginRebuildWindow(LocalDateTime.parse(parts[2]));
+            case REBUILD_SCAN -> advanceScan(parts[2]);
+            case REBUILD_DONE -> endRebuildWindow(true);
+            case REBUILD_ABORT -> endRebuildWindow(false);
+            default -> {
+            }
+        }
+    }
+
+    // 重建开始：此前的未提交增量都会被扫描读到，此后只记录扫描反映不到的部分
+    private void beginRebuildWindow(LocalDateTime cutoff) {
+        lock.lock();
+        try {
+            rebuildCutoff = cutoff;
+            sinceCutoff = new HashMap<>();
+            scannedThrough = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void advanceScan(String lastId) {
+        lock.lock();
+        try {
+            if (sinceCutoff != null) {
+                scannedThrough = lastId;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 重建结束：成功时未提交增量只保留扫描反映不到的部分，失败时原样保留
+    private void endRebuildWindow(boolean replaced) {
+        lock.lock();
+        try {
+            if (replaced && sinceCutoff != null) {
+                pending = sinceCutoff;
+            }
+            sinceCutoff = null;
+            rebuildCutoff = null;
+            scannedThrough = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void broadcast(String type, String payload) {
+        try {
+            redisUtils.publish(RedisUtils.ROLLUP_REBUILD_CHANNEL, RedisUtils.INSTANCE_ID + "|" + type + "|" + payload);
+        } catch (Exception e) {
+            System.err.println("汇总重建广播失败: " + e.getMessage());
+        }
+    }
+
+    // 单个订单的增量 (在锁外计算，查分类可能访问缓存)
+    private OrderDelta delta(Orders order, int sign) {
+        Map<String, Map<String, Tally>> delta = new HashMap<>();
+        accumulate(delta, order, sign);
+        return new OrderDelta(order.getId(), order.getCreateTime(), delta);
+    }
+
+    // 把增量合并进汇总、待提交增量；重建期间扫描反映不到的增量另记一份，重建完成后保留
+    private void merge(List<OrderDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (OrderDelta delta : deltas) {
+                addAll(totals, delta.tallies());
+                addAll(pending, delta.tallies());
+                if (sinceCutoff != null && missedByRebuild(delta)) {
+                    addAll(sinceCutoff, delta.tallies());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 调用方持有 lock：截止时间之后创建的订单不在扫描范围内；订单号不大于已扫描位置的订单，扫描读到的是变化前的状态
+    private boolean missedByRebuild(OrderDelta delta) {
+        if (delta.createTime() == null || !delta.createTime().isBefore(rebuildCutoff)) {
+            return true;
+        }
+        return scannedThrough != null && delta.orderId() != null && delta.orderId().compareTo(scannedThrough) <= 0;
+    }
+
+    // 把一个订单计入各维度：小时 / 天 / 累计按订单金额，菜品 / 分类按明细小计
+    private void accumulate(Map<String, Map<String, Tally>> target, Orders order, int sign) {
+        LocalDateTime time = order.getCreateTime() != null ? order.getCreateTime() : LocalDateTime.now();
+        List<OrderItem> items = order.getOrderItems() != null ? order.getOrderItems() : Collections.emptyList();
+
+        long quantity = 0;
+        long itemsCents = 0;
+        Map<String, Tally> products = new HashMap<>();
+        Map<String, Tally> categories = new HashMap<>();
+        for (OrderItem item : items) {
+            long count = item.getQuantity() == null ? 0 : item.getQuantity();
+            long cents = item.getPrice() == null ? 0 : cents(item.getPrice()) * count;
+            quantity += count;
+            itemsCents += cents;
+
+            String productKey = item.getProductId() != null ? String.valueOf(item.getProductId()) : item.getProductName();
+            if (productKey != null) {
+                Tally product = products.computeIfAbsent(productKey, k -> new Tally());
+                product.quantity += count;
+                product.revenueCents += cents;
+                product.label = item.getProductName();
+            }
+            Tally category = categories.computeIfAbsent(categoryOf(item.getProductId()), k -> new Tally());
+            category.quantity += count;
+            category.revenueCents += cents;
+        }
+        long orderCents = order.getTotalAmount() != null ? cents(order.getTotalAmount()) : itemsCents;
+
+        Tally perOrder = new Tally();
+        perOrder.orderCount = 1;
+        perOrder.quantity = quantity;
+        perOrder.revenueCents = orderCents;
+        bucket(target, DIMENSION_HOUR, time.format(HOUR_FORMAT)).add(perOrder, sign);
+        bucket(target, DIMENSION_DAY, time.format(DAY_FORMAT)).add(perOrder, sign);
+        bucket(target, DIMENSION_TOTAL, BUCKET_ALL).add(perOrder, sign);
+        // 同一订单里出现多次的菜品 / 分类只计一个订单
+        products.forEach((key, tally) -> {
+            tally.orderCount = 1;
+            bucket(target, DIMENSION_PRODUCT, key).add(tally, sign);
+        });
+        categories.forEach((key, tally) -> {
+            tally.orderCount = 1;
+            bucket(target, DIMENSION_CATEGORY, key).add(tally, sign);
+        });
+    }
+
+    // 菜品分类，取自菜品列表缓存；已删除的菜品归入“未分类”
+    private String categoryOf(Long productId) {
+        List<Product> products = productService.getCachedProductList();
+        CategoryIndex index = categoryIndex;
+        if (index.source() != products) {
+            Map<Long, String> map = new HashMap<>();
+            for (Product product : products) {
+                if (product.getCategory() != null && !product.getCategory().isEmpty()) {
+                    map.put(product.getId(), product.getCategory());
+                }
+            }
+            index = new CategoryIndex(products, map);
+            categoryIndex = index;
+        }
+        String category = productId == null ? null : index.categories().get(productId);
+        return category != null ? category : UNCATEGORIZED;
+    }
+
+    // 批量回填订单明细 (一条 IN 查询)
+    private void fillItems(List<Orders> orders) {
+        Map<String, Orders> byId = new HashMap<>();
+        for (Orders order : orders) {
+            order.setOrderItems(new ArrayList<>());
+            byId.put(order.getId(), order);
+        }
+        LambdaQueryWrapper<OrderItem> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(OrderItem::getOrderId, byId.keySet());
+        for (OrderItem item : orderItemMapper.selectList(queryWrapper)) {
+            Orders order = byId.get(item.getOrderId());
+            if (order != null) {
+                order.getOrderItems().add(item);
+            }
+        }
+    }
+
+    // 分批累加写入 (调用方负责事务)
+    private void writeRows(Map<String, Map<String, Tally>> source) {
+        List<SalesRollup> rows = new ArrayList<>();
+        source.forEach((dimension, buckets) -> buckets.forEach((bucket, tally) -> {
+            if (!tally.isZero()) {
+                rows.add(tally.toEntity(dimension, bucket));
+            }
+        }));
+        int batchSize = Math.max(1, insertBatchSize);
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            this.baseMapper.upsertAdd(rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    // 某个维度的全部取值 (调用方排序)
+    private List<SalesRollup> snapshot(String dimension) {
+        List<SalesRollup> list = new ArrayList<>();
+        lock.lock();
+        try {
+            totals.getOrDefault(dimension, Collections.emptyMap()).forEach((bucket, tally) -> {
+                if (tally.orderCount > 0) {
+                    list.add(tally.toEntity(dimension, bucket));
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+        return list;
+    }
+
+    // 调用方持有 lock
+    private SalesRollup toEntity(String dimension, String bucket) {
+        return tally(dimension, bucket).toEntity(dimension, bucket);
+    }
+
+    // 调用方持有 lock；不存在时返回全 0
+    private Tally tally(String dimension, String bucket) {
+        Tally tally = totals.getOrDefault(dimension, Collections.emptyMap()).get(bucket);
+        return tally != null ? tally : new Tally();
+    }
+
+    private static Tally bucket(Map<String, Map<String, Tally>> target, String dimension, String bucket) {
+        return target.computeIfAbsent(dimension, k -> new HashMap<>()).computeIfAbsent(bucket, k -> new Tally());
+    }
+
+    private static void addAll(Map<String, Map<String, Tally>> target, Map<String, Map<String, Tally>> source) {
+        source.forEach((dimension, buckets) ->
+                buckets.forEach((bucket, tally) -> bucket(target, dimension, bucket).add(tally)));
+    }
+
+    private static Map<String, Map<String, Tally>> copy(Map<String, Map<String, Tally>> source) {
+        Map<String, Map<String, Tally>> copy = new HashMap<>();
+        addAll(copy, source);
+        return copy;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * 单个维度取值的计数，金额以分为单位
+     */
+    private static class Tally {
+        private long orderCount;
+        private long quantity;
+        private long revenueCents;
+        private String label;
+
+        static Tally of(SalesRollup row) {
+            Tally tally = new Tally();
+            tally.orderCount = row.getOrderCount() == null ? 0 : row.getOrderCount();
+            tally.quantity = row.getQuantity() == null ? 0 : row.getQuantity();
+            tally.revenueCents = row.getRevenue() == null ? 0 : cents(row.getRevenue());
+            tally.label = row.getLabel();
+            return tally;
+        }
+
+        void add(Tally other) {
+            add(other, 1);
+        }
+
+        void add(Tally other, int sign) {
+            orderCount += sign * other.orderCount;
+            quantity += sign * other.quantity;
+            revenueCents += sign * other.revenueCents;
+            if (other.label != null) {
+                label = other.label;
+            }
+        }
+
+        boolean isZero() {
+            return orderCount == 0 && quantity == 0 && revenueCents == 0 && label == null;
+        }
+
+        SalesRollup toEntity(String dimension, String bucket) {
+            SalesRollup row = new SalesRollup();
+            row.setDimension(dimension);
+            row.setBucket(bucket);
+            row.setLabel(label);
+            row.setOrderCount(orderCount);
+            row.setQuantity(quantity);
+            row.setRevenue(BigDecimal.valueOf(revenueCents, 2));
+            return row;
+        }
+    }
+
+    private record OrderDelta(String orderId, LocalDateTime createTime, Map<String, Map<String, Tally>> tallies) {
+    }
+
+    private record CategoryIndex(List<Product> source, Map<Long, String> categories) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.restaurant.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的追加日志
+ * 记录格式：[长度 int][CRC32 int][数据]，每条记录后写一个 0 作为结束标记；
+ * 另有一个 8 字节的检查点文件，记录已被消费 (落库) 的位置，重启时从检查点往后重放
+ * 日志写满时，只有全部记录都已消费才会回卷到文件开头，否则 append 返回 -1 由调用方降级
+ */
+public class AppendLog implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel logChannel;
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer buffer;
+    private final MappedByteBuffer checkpointBuffer;
+    private final int capacity;
+    // 每次追加后是否立即刷盘；false 时依赖操作系统页缓存，进程崩溃不丢，主机掉电可能丢最后几条
+    private final boolean forceOnAppend;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private int writePosition;
+
+    /**
+     * 打开 (或创建) 日志
+     * @param dir 日志目录
+     * @param name 日志名，生成 {name}.log 和 {name}.checkpoint 两个文件
+     * @param capacity 日志文件大小 (字节)
+     * @param forceOnAppend 每次追加后是否刷盘
+     */
+    public AppendLog(Path dir, String name, int capacity, boolean forceOnAppend) throws IOException {
+        Files.createDirectories(dir);
+        this.capacity = capacity;
+        this.forceOnAppend = forceOnAppend;
+        this.logChannel = FileChannel.open(dir.resolve(name + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointChannel = FileChannel.open(dir.resolve(name + ".checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.checkpointBuffer = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+
+        long checkpoint = checkpointBuffer.getLong(0);
+        if (checkpoint < 0 || checkpoint > capacity) {
+            checkpointBuffer.putLong(0, 0);
+        }
+        List<Entry> pending = readFrom(checkpointOffset());
+        this.writePosition = pending.isEmpty() ? checkpointOffset() : pending.get(pending.size() - 1).endOffset();
+    }
+
+    /**
+     * 追加一条记录
+     * @return 记录结束位置 (消费完成后作为检查点提交)；空间不足返回 -1
+     */
+    public int append(byte[] data) {
+        int required = HEADER_SIZE + data.length;
+        lock.lock();
+        try {
+            if (writePosition + required > capacity) {
+                // 全部记录都已消费才能回卷，否则会覆盖尚未落库的数据
+                if (checkpointOffset() != writePosition || required > capacity) {
+                    return -1;
+                }
+                rewind();
+            }
+
+            int start = writePosition;
+            int end = start + required;
+            // 先写结束标记和数据，最后写长度，重放时读到长度即说明记录完整
+            if (end + Integer.BYTES <= capacity) {
+                buffer.putInt(end, 0);
+            }
+            buffer.put(start + HEADER_SIZE, data);
+            buffer.putInt(start + Integer.BYTES, crc(data));
+            buffer.putInt(start, data.length);
+            if (forceOnAppend) {
+                buffer.force(start, Math.min(required + Integer.BYTES, capacity - start));
+            }
+            writePosition = end;
+            return end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交检查点：该位置之前的记录已消费，重启时不再重放
+     */
+    public void checkpoint(int offset) {
+        lock.lock();
+        try {
+            checkpointBuffer.putLong(0, offset);
+            if (forceOnAppend) {
+                checkpointBuffer.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 读取指定位置之后的全部完整记录 (遇到结束标记、越界或校验失败即停止)
+     */
+    public List<Entry> readFrom(int offset) {
+        List<Entry> entries = new ArrayList<>();
+        int position = offset;
+        while (position + HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] data = new byte[length];
+            buffer.get(position + HEADER_SIZE, data);
+            if (crc(data) != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+            entries.add(new Entry(data, position));
+        }
+        return entries;
+    }
+
+    public int checkpointOffset() {
+        return (int) checkpointBuffer.getLong(0);
+    }
+
+    public int writePosition() {
+        lock.lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            buffer.force();
+            checkpointBuffer.force();
+            logChannel.close();
+            checkpointChannel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 回卷到文件开头：先清开头的记录，再把检查点归零，两步之间崩溃也不会重放旧记录
+     */
+    private void rewind() {
+        buffer.putInt(0, 0);
+        checkpointBuffer.putLong(0, 0);
+        writePosition = 0;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * 日志记录
+     * @param data 数据
+     * @param endOffset 记录结束位置
+     */
+    public record Entry(byte[] data, int endOffset) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.restaurant.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 缓存命中指标
+ * 按 Key 族 (前两段，如 product:list、order:list、login:token) 和缓存层级统计命中 / 未命中次数和回源耗时：
+ *   restaurant.cache.gets{cache, tier, result=hit|miss|stale}
+ *   restaurant.cache.load{cache, tier}
+ * 层级：body 响应体缓存、redis 数据缓存 (含订单列表的 Redis 索引)、local 本地令牌缓存
+ */
+@Component
+public class CacheMetrics {
+
+    public static final String TIER_BODY = "body";
+    public static final String TIER_REDIS = "redis";
+    public static final String TIER_LOCAL = "local";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 已注册的计数器 / 计时器，避免每次访问都重新构建 Meter ID
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> loadTimers = new ConcurrentHashMap<>();
+
+    public void hit(String key, String tier) {
+        count(key, tier, "hit");
+    }
+
+    public void miss(String key, String tier) {
+        count(key, tier, "miss");
+    }
+
+    /**
+     * 未命中，但其他线程正在回源，直接返回了旧值
+     */
+    public void stale(String key, String tier) {
+        count(key, tier, "stale");
+    }
+
+    /**
+     * 执行回源加载并记录耗时 (异常也计时)
+     */
+    public <T> T recordLoad(String key, String tier, Supplier<T> loader) {
+        String family = family(key);
+        Timer timer = loadTimers.computeIfAbsent(family + "|" + tier, k -> Timer.builder("restaurant.cache.load")
+                .description("缓存未命中时的回源耗时")
+                .tag("cache", family)
+                .tag("tier", tier)
+                .register(meterRegistry));
+        long start = System.nanoTime();
+        try {
+            return loader.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void count(String key, String tier, String result) {
+        String family = family(key);
+        counters.computeIfAbsent(family + "|" + tier + "|" + result, k -> Counter.builder("restaurant.cache.gets")
+                .description("缓存读取次数")
+                .tag("cache", family)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry)).increment();
+    }
+
+    /**
+     * Key 族：取前两段 (order:list:status:pending -> order:list，login:token:xxx -> login:token)，
+     * 避免把令牌、状态等变量部分放进指标标签
+     */
+    public static String family(String key) {
+        int first = key.indexOf(':');
+        int second = first < 0 ? -1 : key.indexOf(':', first + 1);
+        return second < 0 ? key : key.substring(0, second);
+    }
+}
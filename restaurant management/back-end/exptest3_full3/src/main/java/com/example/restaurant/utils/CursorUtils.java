@@ -0,0 +1,99 @@
+package com.example.restaurant.utils;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.restaurant.common.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标编解码工具类
+ * 游标内容为 "排序键,主键"，经 Base64URL 编码后对前端不透明
+ */
+public class CursorUtils {
+
+    // 单页最大条数，防止一次拉取过多数据
+    public static final int MAX_SIZE = 100;
+
+    /**
+     * 编码游标
+     * @param sortKey 排序键 (如创建时间)，可为 null
+     * @param id 主键
+     */
+    public static String encode(Object sortKey, Object id) {
+        String raw = (sortKey == null ? "" : sortKey.toString()) + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     * @param cursor 游标字符串，为空表示第一页
+     * @return [排序键, 主键]，第一页返回 null
+     * @throws IllegalArgumentException 游标格式非法
+     */
+    public static String[] decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int idx = raw.lastIndexOf(',');
+        if (idx < 0 || idx == raw.length() - 1) {
+            throw new IllegalArgumentException("非法的分页游标");
+        }
+        return new String[]{raw.substring(0, idx), raw.substring(idx + 1)};
+    }
+
+    /**
+     * 解析游标中的时间排序键
+     */
+    public static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("非法的分页游标");
+        }
+    }
+
+    /**
+     * 键集分页取一页 (菜品、订单、预约列表共用)
+     * 调用方已在 queryWrapper 上加好 seek 条件和倒序排序；这里多取一条用于判断是否还有下一页，
+     * searchCount = false 跳过 COUNT(*)，深翻页不变慢
+     * @param pageSize 每页条数 (已规范化)
+     * @param cursorOf 由本页最后一条生成下一页游标
+     * @param total 近似总数，可为 null
+     */
+    public static <T> CursorPage<T> fetchPage(IService<T> service, Wrapper<T> queryWrapper, int pageSize,
+                                              Function<T, String> cursorOf, Long total) {
+        List<T> records = new ArrayList<>(service.page(new Page<>(1, pageSize + 1, false), queryWrapper).getRecords());
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            nextCursor = cursorOf.apply(records.get(pageSize - 1));
+        }
+        return CursorPage.of(records, pageSize, nextCursor, total);
+    }
+
+    /**
+     * 近似总数：缓存 60 秒，过期后才执行一次 COUNT(*)
+     */
+    public static Long approximateCount(RedisUtils redisUtils, String countKey, IService<?> service) {
+        return Long.valueOf(redisUtils.getOrLoad(countKey, 60, () -> String.valueOf(service.count())));
+    }
+
+    /**
+     * 规范化每页条数
+     */
+    public static int normalizeSize(Integer size) {
+        if (size == null || size <= 0) {
+            return 10;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.restaurant.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 热点小文件内存缓存
+ * 按总字节数限容的 LRU；文件第二次被请求才会载入 (只请求一次的冷门文件不会挤掉热点)
+ */
+public class HotFileCache {
+
+    // 准入计数表上限，超过后整体清空重新计数
+    private static final int MAX_TRACKED = 10000;
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
+    private long usedBytes;
+
+    /**
+     * @param maxBytes 缓存总字节数上限
+     * @param maxFileBytes 单个文件大小上限，更大的文件不进缓存
+     */
+    public HotFileCache(long maxBytes, long maxFileBytes) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+    }
+
+    /**
+     * 读取缓存
+     * @param lastModified 文件当前的修改时间，与缓存不一致视为未命中
+     */
+    public Entry get(String name, long lastModified) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(name);
+            return entry != null && entry.lastModified() == lastModified ? entry : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次未命中；文件足够小且不是第一次被请求时读入内存
+     * @return 读入的缓存条目，未准入返回 null
+     */
+    public Entry admit(String name, Path file, long size, long lastModified) throws IOException {
+        if (size > maxFileBytes) {
+            return null;
+        }
+        if (requestCounts.size() > MAX_TRACKED) {
+            requestCounts.clear();
+        }
+        if (requestCounts.merge(name, 1, Integer::sum) < 2) {
+            return null;
+        }
+
+        byte[] data = Files.readAllBytes(file);
+        if (data.length != size) {
+            // 读取期间文件被替换
+            return null;
+        }
+        Entry entry = new Entry(data, lastModified);
+        lock.lock();
+        try {
+            Entry old = entries.put(name, entry);
+            if (old != null) {
+                usedBytes -= old.data().length;
+            }
+            usedBytes += data.length;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                usedBytes -= eldest.next().data().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+        requestCounts.remove(name);
+        return entry;
+    }
+
+    public void invalidate(String name) {
+        lock.lock();
+        try {
+            Entry old = entries.remove(name);
+            if (old != null) {
+                usedBytes -= old.data().length;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓存条目
+     * @param data 文件内容
+     * @param lastModified 读入时的文件修改时间
+     */
+    public record Entry(byte[] data, long lastModified) {
+    }
+}
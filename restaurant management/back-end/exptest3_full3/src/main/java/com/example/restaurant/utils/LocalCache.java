@@ -0,0 +1,99 @@
+package com.example.restaurant.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 进程内本地缓存 (L1)
+ * 容量有上限、条目带过期时间；读操作无锁，超出容量时淘汰最早过期的条目
+ * @param <K> 键类型
+ * @param <V> 值类型 (应为不可变对象，多个线程会共享同一份实例)
+ */
+public class LocalCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    /**
+     * @param maxSize 最大条目数
+     * @param ttlSeconds 条目存活时间(秒)
+     */
+    public LocalCache(int maxSize, long ttlSeconds) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * 读取缓存
+     * @return 值，不存在或已过期返回 null
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            map.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        while (map.size() > maxSize) {
+            evictOne();
+        }
+    }
+
+    /**
+     * 删除单个条目
+     */
+    public void invalidate(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * 删除满足条件的条目 (例如按前缀批量失效)
+     */
+    public void invalidateIf(Predicate<K> condition) {
+        map.keySet().removeIf(condition);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        map.clear();
+    }
+
+    /**
+     * 当前条目数
+     */
+    public int size() {
+        return map.size();
+    }
+
+    // 淘汰最早过期的条目 (只在超出容量时执行，本地缓存条目很少)
+    private void evictOne() {
+        K oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+            if (e.getValue().expireAt < oldest) {
+                oldest = e.getValue().expireAt;
+                oldestKey = e.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            map.remove(oldestKey);
+        }
+    }
+
+    private record Entry<V>(V value, long expireAt) {
+    }
+}
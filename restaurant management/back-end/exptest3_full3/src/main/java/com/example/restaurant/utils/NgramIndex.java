@@ -0,0 +1,273 @@
+package com.example.restaurant.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 进程内 N-gram 倒排索引，用于手机号片段、姓名、订单号等“包含”查询
+ * 每个字段按长度 1~gramSize 切分为片段建立倒排表：
+ * 查询串不超过 gramSize 时直接取一张倒排表；更长时对各 gramSize 片段的倒排表求交集，再用 contains 校验
+ * 增量维护靠 put/remove；全量重建在锁外构建新索引，完成后与重建期间的增量修改合并再整体替换
+ * @param <K> 主键类型
+ * @param <V> 索引中保存的值 (作为查询结果返回，调用方不要修改)
+ */
+public class NgramIndex<K, V> {
+
+    private final int gramSize;
+    private final Function<V, String[]> fields;
+    private final Comparator<? super V> order;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment<K, V> segment = new Segment<>();
+
+    // 重建期间被增量修改过的主键，合并时以当前索引中的值为准
+    private final Set<K> touched = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private volatile boolean ready;
+
+    /**
+     * @param gramSize 最大片段长度
+     * @param fields 从值中取出需要索引的字段
+     * @param order 查询结果排序
+     */
+    public NgramIndex(int gramSize, Function<V, String[]> fields, Comparator<? super V> order) {
+        this.gramSize = Math.max(1, gramSize);
+        this.fields = fields;
+        this.order = order;
+    }
+
+    /**
+     * 是否已完成首次全量构建；未就绪时调用方应回退到数据库查询
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(K key, V value) {
+        Doc<V> doc = toDoc(value);
+        lock.writeLock().lock();
+        try {
+            segment.put(key, doc);
+            if (rebuilding) {
+                touched.add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(key);
+            if (rebuilding) {
+                touched.add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询字段中包含 query 的值 (忽略大小写)
+     * @param limit 最多返回条数
+     */
+    public List<V> search(String query, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<V> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Set<K>> postings = new ArrayList<>();
+            for (String gram : queryGrams(needle)) {
+                Set<K> keys = segment.postings.get(gram);
+                if (keys == null) {
+                    return Collections.emptyList();
+                }
+                postings.add(keys);
+            }
+            // 从最短的倒排表开始求交集
+            postings.sort(Comparator.comparingInt(Set::size));
+            boolean verify = needle.length() > gramSize;
+            for (K key : postings.get(0)) {
+                if (containsAll(postings, key)) {
+                    Doc<V> doc = segment.docs.get(key);
+                    if (!verify || doc.matches(needle)) {
+                        result.add(doc.value());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(order);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 开始全量重建：此后的增量修改会被记录，调用方随后读取数据库快照
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            touched.clear();
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用数据库快照完成重建
+     * 快照在锁外建好，重建期间增量修改过的主键沿用当前索引中的值 (可能已被删除)，然后整体替换
+     */
+    public void finishRebuild(Map<K, V> snapshot) {
+        Segment<K, V> fresh = new Segment<>();
+        for (Map.Entry<K, V> entry : snapshot.entrySet()) {
+            fresh.put(entry.getKey(), toDoc(entry.getValue()));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (K key : touched) {
+                fresh.remove(key);
+                Doc<V> current = segment.docs.get(key);
+                if (current != null) {
+                    fresh.put(key, current);
+                }
+            }
+            segment = fresh;
+            touched.clear();
+            rebuilding = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 放弃本次重建 (例如数据库查询失败)
+     */
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            touched.clear();
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean containsAll(List<Set<K>> postings, K key) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<String> queryGrams(String needle) {
+        if (needle.length() <= gramSize) {
+            return Collections.singleton(needle);
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + gramSize <= needle.length(); i++) {
+            grams.add(needle.substring(i, i + gramSize));
+        }
+        return grams;
+    }
+
+    private Doc<V> toDoc(V value) {
+        String[] raw = fields.apply(value);
+        List<String> texts = new ArrayList<>(raw.length);
+        Set<String> grams = new HashSet<>();
+        for (String field : raw) {
+            String text = normalize(field);
+            if (text.isEmpty()) {
+                continue;
+            }
+            texts.add(text);
+            for (int n = 1; n <= gramSize; n++) {
+                for (int i = 0; i + n <= text.length(); i++) {
+                    grams.add(text.substring(i, i + n));
+                }
+            }
+        }
+        return new Doc<>(value, texts, grams);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 索引文档：原值、归一化后的字段文本、切分出的片段
+     */
+    private record Doc<V>(V value, List<String> texts, Set<String> grams) {
+
+        boolean matches(String needle) {
+            for (String text : texts) {
+                if (text.contains(needle)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 倒排表 + 文档表，重建时整体替换
+     */
+    private static class Segment<K, V> {
+        private final Map<String, Set<K>> postings = new HashMap<>();
+        private final Map<K, Doc<V>> docs = new HashMap<>();
+
+        void put(K key, Doc<V> doc) {
+            remove(key);
+            docs.put(key, doc);
+            for (String gram : doc.grams()) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        }
+
+        void remove(K key) {
+            Doc<V> old = docs.remove(key);
+            if (old == null) {
+                return;
+            }
+            for (String gram : old.grams()) {
+                Set<K> keys = postings.get(gram);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+}
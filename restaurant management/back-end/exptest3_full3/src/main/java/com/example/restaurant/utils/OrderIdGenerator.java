@@ -0,0 +1,13 @@
+package com.example.restaurant.utils;
+
+/**
+ * 订单号生成器
+ * 由 restaurant.order.id-generator 选择实现：snowflake (按时间递增，默认) 或 uuid (旧方案，随机)
+ */
+public interface OrderIdGenerator {
+
+    /**
+     * 生成一个新的订单号
+     */
+    String nextId();
+}
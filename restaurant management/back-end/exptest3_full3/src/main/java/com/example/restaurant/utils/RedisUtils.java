@@ -1,10 +1,23 @@
 package com.example.restaurant.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Redis 工具类
@@ -13,6 +26,23 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class RedisUtils {
 
+    // 缓存失效广播频道，消息内容为失效的缓存 Key
+    public static final String CACHE_EVICT_CHANNEL = "cache:evict";
+
+    // 搜索索引变更广播频道，消息格式为 "实例标识|类型|主键1,主键2"，收到后按主键回源刷新本节点索引
+    public static final String SEARCH_INDEX_CHANNEL = "search:index";
+
+    // 销售汇总重建广播频道，消息格式为 "实例标识|类型|内容"，其他节点据此划分本地未提交的增量
+    public static final String ROLLUP_REBUILD_CHANNEL = "rollup:rebuild";
+
+    // 本进程实例标识，用于在广播中跳过自己发出的消息
+    public static final String INSTANCE_ID = UUID.randomUUID().toString().substring(0, 8);
+
+    // 比较令牌并删除，在 Redis 内一次执行，避免先读后删之间锁过期被别人拿到后误删
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0",
+            Long.class);
+
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
@@ -44,6 +74,16 @@ public class RedisUtils {
         return stringRedisTemplate.opsForValue().get(key);
     }
 
+    /**
+     * 批量读取缓存 (一次 MGET)
+     * @param keys 键列表
+     * @return 与 keys 顺序一致的值列表，不存在的 key 对应 null
+     */
+    public List<String> multiGet(Collection<String> keys) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        return values == null ? new ArrayList<>(Collections.nCopies(keys.size(), null)) : values;
+    }
+
     /**
      * 删除缓存
      * @param key 键
@@ -60,4 +100,148 @@ public class RedisUtils {
     public boolean hasKey(String key) {
         return Boolean.TRUE.equals(stringRedisTemplate.hasKey(key));
     }
+
+    /**
+     * 尝试加锁 (SET NX PX)，到期自动释放，持锁进程崩溃也不会一直占着
+     * @param key 锁的 key
+     * @param token 本次加锁的令牌，释放时核对
+     * @param timeoutMillis 锁的过期时间(毫秒)
+     * @return true 加锁成功, false 已被其他线程 / 节点持有
+     */
+    public boolean tryLock(String key, String token, long timeoutMillis) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(key, token, timeoutMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 释放锁：值仍是自己的令牌时才删除 (Lua 脚本原子执行)
+     * @param key 锁的 key
+     * @param token 加锁时的令牌
+     */
+    public void unlock(String key, String token) {
+        stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(key), token);
+    }
+
+    /**
+     * 锁是否仍由 token 持有；锁过期 (无论是否已被别人拿到) 都返回 false
+     * @param key 锁的 key
+     * @param token 加锁时的令牌
+     */
+    public boolean holdsLock(String key, String token) {
+        return token.equals(get(key));
+    }
+
+    /**
+     * 读取缓存，不存在时调用 loader 加载并写入 (带过期时间)
+     * @param key 键
+     * @param timeout 过期时间(秒)
+     * @param loader 缓存未命中时的加载函数
+     * @return 缓存值或新加载的值
+     */
+    public String getOrLoad(String key, long timeout, Supplier<String> loader) {
+        String value = get(key);
+        if (value != null && !value.isEmpty()) {
+            return value;
+        }
+        value = loader.get();
+        if (value != null) {
+            set(key, value, timeout);
+        }
+        return value;
+    }
+
+    /**
+     * 发布消息到频道
+     * @param channel 频道
+     * @param message 消息内容
+     */
+    public void publish(String channel, String message) {
+        stringRedisTemplate.convertAndSend(channel, message);
+    }
+
+    /**
+     * 读取 Hash 字段
+     * @param key 键
+     * @param field 字段
+     * @return 值，不存在返回 null
+     */
+    public String hGet(String key, String field) {
+        Object value = stringRedisTemplate.opsForHash().get(key, field);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 批量读取 Hash 字段 (一次 HMGET)
+     * @param key 键
+     * @param fields 字段列表
+     * @return 与 fields 顺序一致的值列表，不存在的字段对应 null
+     */
+    public List<String> hMultiGet(String key, Collection<String> fields) {
+        List<String> result = new ArrayList<>(fields.size());
+        if (fields.isEmpty()) {
+            return result;
+        }
+        for (Object value : stringRedisTemplate.opsForHash().multiGet(key, new ArrayList<>(fields))) {
+            result.add(value == null ? null : value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 读取 Set 全部成员
+     * @param key 键
+     * @return 成员集合
+     */
+    public Set<String> sMembers(String key) {
+        return stringRedisTemplate.opsForSet().members(key);
+    }
+
+    /**
+     * 乐观事务：WATCH keys 后调用 prepare 读取数据 (可以查库)，再在 MULTI/EXEC 中执行 commands
+     * 从 WATCH 到 EXEC 之间 keys 被任何客户端修改时整个事务放弃，返回 false，由调用方重新读取后重试
+     * 整个过程占用连接池里的一个独占连接，prepare 里不要查库：持有 Redis 连接等数据库连接，
+     * 与持有数据库连接 (事务提交回调里) 等 Redis 连接的线程会互相卡死；需要库里的数据时先查库、记下版本号，在 prepare 里核对
+     * @param keys 需要监视的 key
+     * @param prepare 事务前的读取 (只读 Redis)，结果传给 commands
+     * @param commands 在 MULTI/EXEC 内执行的写命令；一条都不执行时视为放弃，返回 false
+     * @return true 事务已提交
+     */
+    @SuppressWarnings("unchecked")
+    public <T> boolean watchAndExec(Collection<String> keys, Supplier<T> prepare,
+                                    BiConsumer<RedisOperations<String, String>, T> commands) {
+        return Boolean.TRUE.equals(stringRedisTemplate.execute(new SessionCallback<Boolean>() {
+            @Override
+            public <K, V> Boolean execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.watch(keys);
+                T value;
+                try {
+                    value = prepare.get();
+                } catch (RuntimeException e) {
+                    ops.unwatch();
+                    throw e;
+                }
+                ops.multi();
+                commands.accept(ops, value);
+                List<Object> results = ops.exec();
+                return results != null && !results.isEmpty();
+            }
+        }));
+    }
+
+    /**
+     * 以管道方式批量执行命令，多条命令只需一次网络往返
+     * @param commands 在管道内执行的命令
+     * @return 各条命令的执行结果，顺序与执行顺序一致
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> pipeline(Consumer<RedisOperations<String, String>> commands) {
+        return stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                commands.accept((RedisOperations<String, String>) operations);
+                return null;
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.example.restaurant.utils;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 资源版本号 (用于列表接口的 ETag / 304)
+ * 版本号保存在 Redis (所有节点一致，负载均衡切换节点也能命中 304)，本节点在内存中保留一份：
+ * 写操作 INCR 后广播新版本，各节点收到后更新内存，读请求只读内存，不访问 Redis
+ * 调用方必须先清缓存、再 bump，保证拿到新版本号的请求一定读到新数据
+ */
+@Component
+public class ResourceVersions {
+
+    public static final String PRODUCT = "product";
+    public static final String ORDER = "order";
+    public static final String RESERVATION = "reservation";
+
+    private static final String KEY_PREFIX = "version:";
+
+    // 版本变更广播频道，消息格式为 "资源|版本号"
+    private static final String CHANNEL = "version:bump";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+            if (parts.length == 2) {
+                advance(parts[0], Long.parseLong(parts[1]));
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 当前版本号；本节点首次读取时从 Redis 加载，之后只读内存
+     */
+    public long current(String resource) {
+        AtomicLong version = versions.get(resource);
+        if (version != null) {
+            return version.get();
+        }
+        // Key 不存在 (首次使用 / Redis 被清空) 时以当前时间初始化，保证版本号不会倒退到客户端见过的旧值
+        String key = KEY_PREFIX + resource;
+        List<Object> results = redisUtils.pipeline(ops -> {
+            ops.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+            ops.opsForValue().get(key);
+        });
+        return advance(resource, Long.parseLong((String) results.get(1)));
+    }
+
+    /**
+     * 资源发生变化：版本号加一并广播给所有节点
+     */
+    public void bump(String resource) {
+        String key = KEY_PREFIX + resource;
+        try {
+            List<Object> results = redisUtils.pipeline(ops -> {
+                ops.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+                ops.opsForValue().increment(key);
+            });
+            long version = (Long) results.get(1);
+            advance(resource, version);
+            redisUtils.publish(CHANNEL, resource + "|" + version);
+        } catch (Exception e) {
+            // Redis 不可用时至少让本节点的 ETag 失效
+            versions.computeIfAbsent(resource, r -> new AtomicLong()).incrementAndGet();
+            System.err.println("资源版本号更新失败: " + resource + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 当前版本对应的 ETag (弱校验：gzip 与未压缩的响应视为同一版本)
+     */
+    public String etag(String resource) {
+        return "W/\"" + resource + "-" + current(resource) + "\"";
+    }
+
+    /**
+     * If-None-Match 是否命中 (弱比较)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String expected = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = stripWeak(candidate.trim());
+            if ("*".equals(tag) || expected.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 只会前进，乱序到达的旧版本被忽略
+    private long advance(String resource, long version) {
+        return versions.computeIfAbsent(resource, r -> new AtomicLong()).accumulateAndGet(version, Math::max);
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.restaurant.utils;
+
+import com.example.restaurant.common.Result;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应体缓存
+ * 缓存序列化好的 Result 信封 JSON 字节 (以及预压缩的 gzip 字节)，命中时直接写出，不再经过 JSON 解析和 Jackson 序列化
+ * 失效：业务写操作调用 invalidate 清本节点；其他节点通过缓存失效广播 (cache:evict) 按前缀清除
+ * 每个条目记录构建时的资源版本 (ETag)，只有版本一致才命中；单飞也按版本区分，版本升级后的请求不会拿到旧版本的构建结果
+ */
+@Component
+public class ResponseBodyCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private SingleFlightCache singleFlightCache;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${restaurant.cache.body-max-size:32}")
+    private int maxSize;
+
+    @Value("${restaurant.cache.local-ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // 小于该大小的响应不值得压缩
+    @Value("${restaurant.cache.gzip-min-bytes:1024}")
+    private int gzipMinBytes;
+
+    private LocalCache<String, Body> cache;
+
+    // 失效代数：构建期间发生失效时，构建结果不写入缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder gzipResponses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maxSize, ttlSeconds);
+        listenerContainer.addMessageListener((message, pattern) ->
+                invalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RedisUtils.CACHE_EVICT_CHANNEL));
+    }
+
+    /**
+     * 返回资源列表的响应：版本与 If-None-Match 一致时直接 304 (不读缓存也不取数据)；
+     * 否则返回缓存的响应体，未命中时调用 loader 取数据，包装为 Result.success 后序列化并缓存
+     * @param key 缓存 Key，与底层数据缓存的 Key 同前缀，便于一起失效
+     * @param resource 资源名 (见 ResourceVersions)，用于生成 ETag
+     * @param acceptEncoding 请求头 Accept-Encoding
+     * @param ifNoneMatch 请求头 If-None-Match
+     * @param loader 数据加载
+     */
+    public ResponseEntity<byte[]> respond(String key, String resource, String acceptEncoding, String ifNoneMatch,
+                                          Supplier<?> loader) {
+        // 先取版本号再取数据，保证拿到新 ETag 的请求一定读到新数据
+        String etag = resourceVersions.etag(resource);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        Body body = cache.get(key);
+        if (body != null && etag.equals(body.etag())) {
+            hits.increment();
+            cacheMetrics.hit(key, CacheMetrics.TIER_BODY);
+        } else {
+            misses.increment();
+            cacheMetrics.miss(key, CacheMetrics.TIER_BODY);
+            // 本节点同一时刻只有一个线程序列化同一个 Key 的同一个版本
+            body = singleFlightCache.singleFlight("body:" + key + ":" + etag, () -> {
+                long before = generation.get();
+                Body built = cacheMetrics.recordLoad(key, CacheMetrics.TIER_BODY, () -> build(loader.get(), etag));
+                if (before == generation.get()) {
+                    cache.put(key, built);
+                }
+                return built;
+            });
+        }
+
+        // 允许客户端缓存，但每次使用前都要带 If-None-Match 回来校验
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache());
+        if (body.gzip() != null && acceptsGzip(acceptEncoding)) {
+            gzipResponses.increment();
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
+    }
+
+    /**
+     * 按前缀失效本节点的缓存
+     */
+    public void invalidate(String prefix) {
+        generation.incrementAndGet();
+        cache.invalidateIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * 命中率、条目数统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("gzipResponses", gzipResponses.sum());
+        stats.put("entries", cache.size());
+        return stats;
+    }
+
+    private Body build(Object data, String etag) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(data));
+            return new Body(json, json.length >= gzipMinBytes ? gzip(json) : null, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("响应序列化失败", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                return parts.length < 2 || !parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存的响应体
+     * @param json 信封 JSON
+     * @param gzip 预压缩的 JSON，过小不压缩时为 null
+     * @param etag 构建时的资源版本
+     */
+    public record Body(byte[] json, byte[] gzip, String etag) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.restaurant.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 防击穿的缓存加载组件
+ * 1. 单飞 (single-flight)：同一个 Key 同时只有一个线程回源加载，其余线程等待结果或直接拿旧值
+ * 2. 提前刷新 (refresh-ahead)：Key 剩余 TTL 低于阈值时在后台重新加载，热点 Key 不会真正过期
+ * 每个 Key 在 Redis 中另有一个版本号 (Key + ":version")，失效时 +1；读缓存时顺带读出版本号，
+ * 同一版本的请求才共享一次加载，回写前在 WATCH 下核对版本号未变，任何节点在加载期间做的失效都能挡住旧值
+ */
+@Component
+public class SingleFlightCache {
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    // 剩余 TTL 低于 总 TTL * 该比例 时触发后台刷新
+    @Value("${restaurant.cache.refresh-ahead-ratio:0.1}")
+    private double refreshAheadRatio;
+
+    // 等待其他线程加载结果的最长时间(毫秒)，超时后自行回源
+    @Value("${restaurant.cache.load-timeout-ms:3000}")
+    private long loadTimeoutMillis;
+
+    // 正在进行的加载任务
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // 每个 Key 最近一次的值，加载进行中时可直接返回
+    private final Map<String, String> staleValues = new ConcurrentHashMap<>();
+
+    // 每个 Key 在本节点的失效版本号 (本节点失效或收到失效广播时 +1)，加载期间变化则不回写 Redis
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // 正在后台刷新的 Key
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    // 虚拟线程模式下后台刷新每个任务一个虚拟线程 (同一 Key 同时只有一个刷新任务，数量受 Key 数量限制)
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = ThreadFactories.newBlockingExecutor("cache-refresh-", 2, virtualThreads);
+        // 其他节点失效某个 Key 后会广播，这里让本节点正在进行的加载不再回写，也不再返回旧值
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String key = new String(message.getBody(), StandardCharsets.UTF_8);
+            versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+            staleValues.remove(key);
+        }, new ChannelTopic(RedisUtils.CACHE_EVICT_CHANNEL));
+    }
+
+    /**
+     * 读取 Redis 缓存，未命中时单飞回源
+     * @param key 缓存 Key
+     * @param ttlSeconds 过期时间(秒)
+     * @param loader 回源加载函数，返回要写入缓存的字符串，返回 null 表示不缓存
+     * @return 缓存值
+     */
+    public String getOrLoad(String key, long ttlSeconds, Supplier<String> loader) {
+        // 一次往返同时读取值、剩余 TTL 和版本号
+        List<Object> results = redisUtils.pipeline(ops -> {
+            ops.opsForValue().get(key);
+            ops.getExpire(key);
+            ops.opsForValue().get(versionKey(key));
+        });
+        String value = (String) results.get(0);
+        String version = (String) results.get(2);
+        if (value != null && !value.isEmpty()) {
+            cacheMetrics.hit(key, CacheMetrics.TIER_REDIS);
+            staleValues.put(key, value);
+            Long remaining = (Long) results.get(1);
+            if (remaining != null && remaining >= 0 && remaining < ttlSeconds * refreshAheadRatio) {
+                refreshAsync(key, version, ttlSeconds, loader);
+            }
+            return value;
+        }
+
+        // 同一版本已有线程在加载且手里有旧值 -> 直接返回旧值，不排队等待
+        String flightKey = flightKey(key, version);
+        String stale = staleValues.get(key);
+        if (stale != null && inFlight.containsKey(flightKey)) {
+            cacheMetrics.stale(key, CacheMetrics.TIER_REDIS);
+            return stale;
+        }
+        cacheMetrics.miss(key, CacheMetrics.TIER_REDIS);
+        return singleFlight(flightKey, () -> loadAndSet(key, version, ttlSeconds, loader));
+    }
+
+    /**
+     * 单飞执行：同一个 Key 同时只执行一个 loader，其余调用方等待并共享结果
+     * @param key 任务 Key
+     * @param loader 加载函数
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T singleFlight(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return (T) existing.get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // 加载太慢，不再等待，自行回源
+                return loader.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 失效缓存：Redis 版本号 +1 并删除 Key，本节点和其他节点正在进行的加载结果都不再回写
+     * @param key 缓存 Key
+     */
+    public void invalidate(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        staleValues.remove(key);
+        redisUtils.pipeline(ops -> {
+            ops.opsForValue().increment(versionKey(key));
+            ops.delete(key);
+        });
+    }
+
+    // 回源加载并写入 Redis；加载期间 Key 被失效 (本节点版本号或 Redis 版本号变了) 则只返回结果不回写
+    private String loadAndSet(String key, String redisVersion, long ttlSeconds, Supplier<String> loader) {
+        AtomicLong version = versions.computeIfAbsent(key, k -> new AtomicLong());
+        long before = version.get();
+        String value = cacheMetrics.recordLoad(key, CacheMetrics.TIER_REDIS, loader);
+        if (value != null && before == version.get()) {
+            // WATCH 版本号后核对，版本号一致才在 MULTI 中写入；核对之后的失效会使 EXEC 放弃
+            boolean written = redisUtils.watchAndExec(Collections.singletonList(versionKey(key)),
+                    () -> Objects.equals(redisVersion, redisUtils.get(versionKey(key))),
+                    (ops, unchanged) -> {
+                        if (unchanged) {
+                            ops.opsForValue().set(key, value, ttlSeconds, TimeUnit.SECONDS);
+                        }
+                    });
+            if (written && before == version.get()) {
+                staleValues.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    // Redis 中的版本号 Key
+    private static String versionKey(String key) {
+        return key + ":version";
+    }
+
+    // 单飞任务 Key：不同版本的加载互不共享
+    private static String flightKey(String key, String redisVersion) {
+        return key + "@" + (redisVersion == null ? "0" : redisVersion);
+    }
+
+    // 后台提前刷新，同一个 Key 同时只有一个刷新任务
+    private void refreshAsync(String key, String redisVersion, long ttlSeconds, Supplier<String> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight(flightKey(key, redisVersion), () -> loadAndSet(key, redisVersion, ttlSeconds, loader));
+                } catch (Exception e) {
+                    // 刷新失败不影响读请求，Key 过期后由读请求回源
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.restaurant.utils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内餐桌时段索引，用于预约冲突检查和空桌查询
+ * 每张餐桌一棵按开始时间排序的 TreeMap，每个预约占用 [预约时间, 预约时间 + 用餐时长)；
+ * 用餐时长固定时，两个时段相交当且仅当开始时间相差小于用餐时长，
+ * 所以判断某桌某时段是否空闲只需看开始时间落在 (t - 时长, t + 时长) 内有没有预约，O(log n)
+ * 增量维护靠 put/remove；全量重建的方式与 NgramIndex 相同
+ */
+public class TableSlotIndex {
+
+    private final Duration seating;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+
+    // 重建期间被增量修改过的预约，合并时以当前索引中的值为准
+    private final Set<Long> touched = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private volatile boolean ready;
+
+    /**
+     * @param seating 每个预约占用餐桌的时长
+     */
+    public TableSlotIndex(Duration seating) {
+        this.seating = seating;
+    }
+
+    /**
+     * 是否已完成首次全量构建；未就绪时调用方应回退到数据库查询
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(Long id, Slot slot) {
+        lock.writeLock().lock();
+        try {
+            segment.put(id, slot);
+            if (rebuilding) {
+                touched.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(id);
+            if (rebuilding) {
+                touched.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 餐桌从 start 开始的一个用餐时长内是否空闲
+     * @param excludeId 不参与比较的预约 (修改预约本身时传入)，可为 null
+     */
+    public boolean isFree(String tableId, LocalDateTime start, Long excludeId) {
+        lock.readLock().lock();
+        try {
+            return !segment.overlaps(tableId, start, seating, excludeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从 start 开始的一个用餐时长内已被占用的餐桌
+     */
+    public Set<String> busyTables(LocalDateTime start) {
+        Set<String> busy = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (String tableId : segment.tables.keySet()) {
+                if (segment.overlaps(tableId, start, seating, null)) {
+                    busy.add(tableId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return busy;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 开始全量重建：此后的增量修改会被记录，调用方随后读取数据库快照
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            touched.clear();
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用数据库快照完成重建
+     * 快照在锁外建好，重建期间增量修改过的预约沿用当前索引中的值 (可能已被移除)，然后整体替换
+     */
+    public void finishRebuild(Map<Long, Slot> snapshot) {
+        Segment fresh = new Segment();
+        for (Map.Entry<Long, Slot> entry : snapshot.entrySet()) {
+            fresh.put(entry.getKey(), entry.getValue());
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Long id : touched) {
+                fresh.remove(id);
+                Slot current = segment.slots.get(id);
+                if (current != null) {
+                    fresh.put(id, current);
+                }
+            }
+            segment = fresh;
+            touched.clear();
+            rebuilding = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 放弃本次重建 (例如数据库查询失败)
+     */
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            touched.clear();
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 预约占用的餐桌和开始时间
+     */
+    public record Slot(String tableId, LocalDateTime start) {
+    }
+
+    /**
+     * 餐桌 -> 开始时间 -> 预约 ID (历史数据里同一时间可能有多个预约)，加上预约 ID -> 时段的反查表，重建时整体替换
+     */
+    private static class Segment {
+        private final Map<String, TreeMap<LocalDateTime, Set<Long>>> tables = new HashMap<>();
+        private final Map<Long, Slot> slots = new HashMap<>();
+
+        void put(Long id, Slot slot) {
+            remove(id);
+            slots.put(id, slot);
+            tables.computeIfAbsent(slot.tableId(), t -> new TreeMap<>())
+                    .computeIfAbsent(slot.start(), s -> new HashSet<>()).add(id);
+        }
+
+        void remove(Long id) {
+            Slot old = slots.remove(id);
+            if (old == null) {
+                return;
+            }
+            TreeMap<LocalDateTime, Set<Long>> starts = tables.get(old.tableId());
+            Set<Long> ids = starts == null ? null : starts.get(old.start());
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    starts.remove(old.start());
+                    if (starts.isEmpty()) {
+                        tables.remove(old.tableId());
+                    }
+                }
+            }
+        }
+
+        boolean overlaps(String tableId, LocalDateTime start, Duration seating, Long excludeId) {
+            TreeMap<LocalDateTime, Set<Long>> starts = tables.get(tableId);
+            if (starts == null) {
+                return false;
+            }
+            NavigableMap<LocalDateTime, Set<Long>> window =
+                    starts.subMap(start.minus(seating), false, start.plus(seating), false);
+            for (Set<Long> ids : window.values()) {
+                if (excludeId == null || ids.size() > 1 || !ids.contains(excludeId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
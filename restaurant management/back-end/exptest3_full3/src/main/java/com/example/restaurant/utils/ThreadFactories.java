@@ -0,0 +1,91 @@
+package com.example.restaurant.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台线程工厂
+ * 开启虚拟线程模式 (spring.threads.virtual.enabled=true) 且运行在 JDK 21+ 时创建虚拟线程，否则创建命名的守护平台线程。
+ * 项目按 Java 17 编译，虚拟线程相关 API 通过反射调用。
+ */
+public class ThreadFactories {
+
+    // 虚拟线程工厂 (Thread.ofVirtual().factory())，当前 JDK 不支持时为 null
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method THREAD_PER_TASK;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method perTask = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        THREAD_PER_TASK = perTask;
+    }
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * 当前 JDK 是否支持虚拟线程
+     */
+    public static boolean virtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建线程工厂
+     * @param prefix 线程名前缀，线程名为 prefix + 序号
+     * @param virtual 是否使用虚拟线程 (JDK 不支持时退回平台线程)
+     */
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        if (virtual && virtualThreadsAvailable()) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 1L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("创建虚拟线程工厂失败，使用平台线程: " + e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 创建执行阻塞 I/O 任务的线程池
+     * 虚拟线程模式下每个任务一个虚拟线程，并发度由下游的连接池限制；否则为固定大小的平台线程池
+     * @param prefix 线程名前缀
+     * @param platformThreads 平台线程模式下的线程数
+     * @param virtual 是否使用虚拟线程
+     */
+    public static ExecutorService newBlockingExecutor(String prefix, int platformThreads, boolean virtual) {
+        if (virtual && virtualThreadsAvailable()) {
+            try {
+                return (ExecutorService) THREAD_PER_TASK.invoke(null, named(prefix, true));
+            } catch (ReflectiveOperationException e) {
+                System.err.println("创建虚拟线程执行器失败，使用平台线程: " + e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads, named(prefix, false));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.restaurant.utils;
+
+import com.example.restaurant.entity.User;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已验证令牌的本地缓存
+ * 以令牌的 SHA-256 摘要为键，缓存解析好的用户和 JWT 声明，命中时拦截器无需访问 Redis、无需重新验签；
+ * 注销 / 踢下线时通过 Redis 频道通知所有节点删除对应条目
+ */
+@Component
+public class TokenCache {
+
+    // Redis 中登录令牌的 Key 前缀
+    public static final String TOKEN_KEY_PREFIX = "login:token:";
+
+    // 令牌吊销广播频道，消息内容为令牌摘要
+    public static final String REVOKE_CHANNEL = "auth:revoke";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${restaurant.auth.token-cache-size:10000}")
+    private int maxSize;
+
+    // 本地条目存活时间，作为漏收吊销消息时的兜底
+    @Value("${restaurant.auth.token-cache-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private LocalCache<String, TokenInfo> cache;
+
+    // 吊销代数：加载期间发生吊销时，加载结果不写入本地缓存
+    private final AtomicLong revokeGeneration = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maxSize, ttlSeconds);
+        listenerContainer.addMessageListener((message, pattern) -> {
+            revokeGeneration.incrementAndGet();
+            cache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+        }, new ChannelTopic(REVOKE_CHANNEL));
+    }
+
+    /**
+     * 读取已验证的令牌信息
+     * @return 未缓存或 JWT 已过期返回 null
+     */
+    public TokenInfo get(String token) {
+        TokenInfo info = cache.get(hash(token));
+        if (info == null || info.expireAt() < System.currentTimeMillis()) {
+            return null;
+        }
+        return info;
+    }
+
+    /**
+     * 当前吊销代数，加载前读取，写入时传回 put
+     */
+    public long generation() {
+        return revokeGeneration.get();
+    }
+
+    /**
+     * 缓存验证通过的令牌；加载期间发生过吊销则放弃写入
+     */
+    public void put(String token, TokenInfo info, long generation) {
+        if (generation == revokeGeneration.get()) {
+            cache.put(hash(token), info);
+        }
+    }
+
+    /**
+     * 吊销令牌：删除 Redis 会话，并通知所有节点 (包括本节点) 删除本地缓存
+     */
+    public void revoke(String token) {
+        String digest = hash(token);
+        redisUtils.delete(TOKEN_KEY_PREFIX + token);
+        revokeGeneration.incrementAndGet();
+        cache.invalidate(digest);
+        redisUtils.publish(REVOKE_CHANNEL, digest);
+    }
+
+    // 令牌的 SHA-256 摘要 (不在内存和频道中保留令牌原文)
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 已验证的令牌信息
+     * @param user 登录用户
+     * @param claims JWT 声明
+     * @param expireAt JWT 过期时间 (毫秒时间戳)
+     */
+    public record TokenInfo(User user, Claims claims, long expireAt) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.restaurant.utils;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 随机 UUID 订单号 (去掉横线的 32 位)，即原来的方案，保留用于对比测试
+ */
+@Component
+@ConditionalOnProperty(name = "restaurant.order.id-generator", havingValue = "uuid")
+public class UuidOrderIdGenerator implements OrderIdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
@@ -25,4 +25,13 @@ export function updateOrderStatus(id: number | string, status: string) {
     method: 'put',
     params: { status }
   })
-}
\ No newline at end of file
+}
+
+// 4. 批量更新订单状态 (后厨一次推进多张单)，items: [{ id, status }]
+export function updateOrderStatusBatch(items: { id: number | string; status: string }[]) {
+  return request({
+    url: '/orders/status/batch',
+    method: 'put',
+    data: items
+  })
+}
@@ -35,4 +35,13 @@ export function getOccupiedTables() {
     url: '/reservations/occupied', 
     method: 'get'
   })
-}
\ No newline at end of file
+}
+
+// 5. 查询空闲餐桌 (time: YYYY-MM-DDTHH:mm:ss，people: 用餐人数)
+export function getFreeTables(params: { time: string; people: number }) {
+  return request({
+    url: '/reservations/availability',
+    method: 'get',
+    params
+  })
+}
@@ -79,6 +79,21 @@ CREATE TABLE `reservations`  (
   PRIMARY KEY (`id`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 12 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '预订记录表' ROW_FORMAT = Compact;
 
+-- ----------------------------
+-- Table structure for sales_rollup
+-- ----------------------------
+DROP TABLE IF EXISTS `sales_rollup`;
+CREATE TABLE `sales_rollup`  (
+  `dimension` varchar(16) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '维度: product / category / hour / day',
+  `bucket` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '维度取值: 菜品ID / 分类 / yyyy-MM-dd HH / yyyy-MM-dd',
+  `label` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '显示名称 (菜品名)',
+  `order_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '订单数',
+  `quantity` bigint(20) NOT NULL DEFAULT 0 COMMENT '销量(份)',
+  `revenue` decimal(14, 2) NOT NULL DEFAULT 0.00 COMMENT '销售额',
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`dimension`, `bucket`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '销售汇总表 (下单 / 改状态时增量累加，可从订单全量重建)' ROW_FORMAT = Compact;
+
 -- ----------------------------
 -- Table structure for sys_user
 -- ----------------------------